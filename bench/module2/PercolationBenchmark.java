@@ -0,0 +1,126 @@
+package module2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the Percolation hot paths, across grid sizes and the
+ * union-find and site storage variants. This lives outside src/ because it
+ * needs the JMH jars; build and run it with allocation profiling as
+ * <pre>
+ *   javac -cp algs4.jar:jmh-core.jar:jmh-generator-annprocess.jar -d out src/module2/*.java bench/module2/*.java
+ *   java -cp algs4.jar:jmh-core.jar:out org.openjdk.jmh.Main "module2.*Benchmark" -prof gc
+ * </pre>
+ * and narrow the matrix with e.g. -p n=1000 -p unionFind=FAST. At n = 10000
+ * the grids and the site order need a few GB of heap (-jvmArgs -Xmx8g).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PercolationBenchmark {
+    private static final int SITE_SAMPLES = 1 << 20; // power of two, cycled through by the benchmarks
+    private static final double THRESHOLD = 0.5927;
+
+    @Param({"100", "1000", "10000"})
+    public int n;
+
+    @Param({"FAST", "ALGS4"})
+    public UnionFindKind unionFind;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private int[] rows;
+    private int[] cols;
+    private int cursor;
+    private int[] siteOrder;    // every 0-based site once, in random order, for open()
+    private Percolation filled; // open near the percolation threshold, for the queries
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        SplittableRandom random = new SplittableRandom(42);
+        this.rows = new int[SITE_SAMPLES];
+        this.cols = new int[SITE_SAMPLES];
+        for (int i = 0; i < SITE_SAMPLES; i++) {
+            this.rows[i] = random.nextInt(this.n) + 1;
+            this.cols[i] = random.nextInt(this.n) + 1;
+        }
+
+        this.siteOrder = new int[this.n * this.n];
+        for (int i = 0; i < this.siteOrder.length; i++) {
+            int j = random.nextInt(i + 1);
+            this.siteOrder[i] = this.siteOrder[j];
+            this.siteOrder[j] = i;
+        }
+
+        this.filled = new Percolation(this.n, this.unionFind, this.offHeap);
+        for (int row = 1; row <= this.n; row++) {
+            for (int col = 1; col <= this.n; col++) {
+                if (random.nextDouble() < THRESHOLD) this.filled.open(row, col);
+            }
+        }
+    }
+
+    // a fresh, empty grid for every invocation of open()
+    @State(Scope.Thread)
+    public static class EmptyGrid {
+        Percolation percolation;
+
+        @Setup(Level.Invocation)
+        public void setUp(PercolationBenchmark benchmark) {
+            this.percolation = new Percolation(benchmark.n, benchmark.unionFind, benchmark.offHeap);
+        }
+    }
+
+    private int next() {
+        return this.cursor = (this.cursor + 1) & (SITE_SAMPLES - 1);
+    }
+
+    // opens every site of an empty grid once, in random order, so every call does its union
+    // work; one operation is n * n opens, so divide the score by that for the cost of one open
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int open(EmptyGrid grid) {
+        Percolation percolation = grid.percolation;
+        for (int site : this.siteOrder) {
+            percolation.open(site / this.n + 1, site % this.n + 1);
+        }
+        return percolation.numberOfOpenSites();
+    }
+
+    @Benchmark
+    public boolean isOpen() {
+        int i = next();
+        return this.filled.isOpen(this.rows[i], this.cols[i]);
+    }
+
+    @Benchmark
+    public boolean isFull() {
+        int i = next();
+        return this.filled.isFull(this.rows[i], this.cols[i]);
+    }
+
+    @Benchmark
+    public boolean percolates() {
+        return this.filled.percolates();
+    }
+}
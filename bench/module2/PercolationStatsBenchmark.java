@@ -0,0 +1,57 @@
+package module2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of one full percolation trial per operation, across grid
+ * sizes, union-find variants and trial modes. See PercolationBenchmark for
+ * how to build and run it; at n = 10000 a single trial takes seconds, so a
+ * quick run would pass e.g. -p n=100,1000. Trials are run directly rather than
+ * through PercolationStats, so no thread pool is created and shut down per
+ * operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PercolationStatsBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int n;
+
+    @Param({"FAST", "ALGS4"})
+    public UnionFindKind unionFind;
+
+    @Param({"RANDOM_SITES", "SHUFFLED_SITES"})
+    public TrialMode trialMode;
+
+    private final SplittableRandom seeds = new SplittableRandom(42);
+    private int[] siteOrder; // scratch space of SHUFFLED_SITES trials
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.siteOrder = this.trialMode == TrialMode.SHUFFLED_SITES ? new int[this.n * this.n] : null;
+    }
+
+    @Benchmark
+    public double trial() {
+        SplittableRandom random = new SplittableRandom(this.seeds.nextLong());
+        return PercolationStats.trial(this.n, this.unionFind, this.trialMode, random, this.siteOrder);
+    }
+}
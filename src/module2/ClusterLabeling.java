@@ -0,0 +1,217 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Cluster labels of a fully specified, static n-by-n configuration, computed
+ * in one batch instead of through repeated open() calls. The grid is cut
+ * into horizontal bands that are labelled in parallel, the labels are joined
+ * across band borders, and every site is then resolved to its cluster id in
+ * parallel again. That last pass only reads the shared union-find and writes
+ * each band's own sites into a separate array, so bands never race on a link.
+ * <p>
+ * Clusters are linked so that a parent index is never larger than its child,
+ * which makes every cluster id the smallest 0-based row-major site index in
+ * the cluster. A cluster is therefore full exactly when its id is in the top
+ * row, i.e. below n.
+ */
+public class ClusterLabeling {
+    private static final int BANDS_PER_THREAD = 4;
+
+    private final int n;
+    private final int[] clusterIds; // -1 for blocked sites
+    private final boolean percolates;
+    private final int clusterCount;
+    private final SortedMap<Integer, Integer> clusterSizes = new TreeMap<>(); // size -> number of clusters
+
+    // labels the open sites of the given grid
+    public ClusterLabeling(Percolation percolation, int threads) {
+        this(percolation.gridSize(), openSites(percolation), threads);
+    }
+
+    // labels an n-by-n configuration given as a row-major array of open flags
+    public ClusterLabeling(int n, boolean[] open, int threads) {
+        if (n <= 0 || open == null || (long) n * n != open.length || threads <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.n = n;
+        int[] parent = new int[open.length]; // union-find links, -1 for blocked sites
+        this.clusterIds = new int[open.length];
+        int bands = Math.min(n, threads * BANDS_PER_THREAD);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // label every band on its own; a band only ever touches its own sites
+            runBands(pool, bands, (from, to) -> labelBand(open, parent, from, to));
+
+            // join the clusters that meet across band borders
+            for (int band = 1; band < bands; band++) {
+                int first = bandStart(band, bands) * n;
+                for (int site = first; site < first + n; site++) {
+                    if (open[site] && open[site - n]) union(parent, site, site - n);
+                }
+            }
+
+            // resolve every site to its root, reading the links only
+            runBands(pool, bands, (from, to) -> {
+                for (int site = from * n; site < to * n; site++) {
+                    this.clusterIds[site] = parent[site] >= 0 ? root(parent, site) : -1;
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        int[] sizes = new int[open.length]; // indexed by cluster id
+        int clusters = 0;
+        for (int id : this.clusterIds) {
+            if (id >= 0 && sizes[id]++ == 0) clusters++;
+        }
+        for (int id = 0; id < sizes.length; id++) {
+            if (sizes[id] > 0) this.clusterSizes.merge(sizes[id], 1, Integer::sum);
+        }
+        boolean spans = false;
+        for (int site = open.length - n; site < open.length && !spans; site++) {
+            spans = this.clusterIds[site] >= 0 && this.clusterIds[site] < n;
+        }
+        this.clusterCount = clusters;
+        this.percolates = spans;
+    }
+
+    // rows from (inclusive) to to (exclusive) of a band
+    private interface BandAction {
+        void run(int from, int to);
+    }
+
+    private void runBands(ForkJoinPool pool, int bands, BandAction action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            int from = bandStart(band, bands);
+            int to = bandStart(band + 1, bands);
+            tasks.add(pool.submit(() -> action.run(from, to)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private int bandStart(int band, int bands) {
+        return (int) ((long) band * this.n / bands);
+    }
+
+    // union-find over the rows of one band, linking to the left and upper neighbours
+    private void labelBand(boolean[] open, int[] parent, int fromRow, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            for (int col = 0, site = row * this.n; col < this.n; col++, site++) {
+                if (!open[site]) {
+                    parent[site] = -1;
+                    continue;
+                }
+                parent[site] = site;
+                if (col > 0 && open[site - 1]) union(parent, site, site - 1);
+                if (row > fromRow && open[site - this.n]) union(parent, site, site - this.n);
+            }
+        }
+    }
+
+    // path halving; only ever run on sites that no other thread touches at the same time
+    private static int find(int[] parent, int p) {
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    // the root of p without writing any link, safe while other threads read the same links
+    private static int root(int[] parent, int p) {
+        while (p != parent[p]) {
+            p = parent[p];
+        }
+        return p;
+    }
+
+    // link the larger root below the smaller one, so ids are cluster minima
+    private static void union(int[] parent, int p, int q) {
+        int rootP = find(parent, p);
+        int rootQ = find(parent, q);
+        if (rootP < rootQ) {
+            parent[rootQ] = rootP;
+        } else if (rootQ < rootP) {
+            parent[rootP] = rootQ;
+        }
+    }
+
+    private static boolean[] openSites(Percolation percolation) {
+        int n = percolation.gridSize();
+        boolean[] open = new boolean[n * n];
+        for (int site = 0; site < open.length; site++) {
+            open[site] = percolation.isOpen(site / n + 1, site % n + 1);
+        }
+        return open;
+    }
+
+    private int site(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+        return (row - 1) * this.n + (col - 1);
+    }
+
+    // cluster id of site (row, col): the smallest row-major index in its cluster, or -1 if blocked
+    public int clusterId(int row, int col) {
+        return this.clusterIds[site(row, col)];
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        return this.clusterIds[site(row, col)] >= 0;
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        int id = this.clusterIds[site(row, col)];
+        return id >= 0 && id < this.n;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return this.percolates;
+    }
+
+    // returns the number of clusters of open sites
+    public int numberOfClusters() {
+        return this.clusterCount;
+    }
+
+    // cluster size histogram: for each cluster size, the number of clusters of that size
+    public SortedMap<Integer, Integer> clusterSizes() {
+        return Collections.unmodifiableSortedMap(this.clusterSizes);
+    }
+
+    // test client: labels a random n-by-n grid with site probability p on the given threads
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        double p = Double.parseDouble(args[1]);
+        int threads = Integer.parseInt(args[2]);
+
+        SplittableRandom random = new SplittableRandom();
+        boolean[] open = new boolean[n * n];
+        for (int site = 0; site < open.length; site++) {
+            open[site] = random.nextDouble() < p;
+        }
+        ClusterLabeling labeling = new ClusterLabeling(n, open, threads);
+        StdOut.println("Percolates: " + labeling.percolates());
+        StdOut.println("Number of clusters: " + labeling.numberOfClusters());
+        StdOut.println("Largest cluster: " + (labeling.numberOfClusters() > 0 ? labeling.clusterSizes().lastKey() : 0));
+    }
+}
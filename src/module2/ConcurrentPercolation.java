@@ -0,0 +1,150 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A percolation grid that many threads may open sites on at the same time.
+ * Sites are opened with a compare-and-set on their state bit, so exactly one
+ * thread wins each site, and connectivity lives in lock-free union-finds.
+ * Two adjacent sites opened concurrently are always joined: each thread
+ * publishes its own site before looking at its neighbours, so at least one
+ * of them sees the other open. percolates() and isFull() are linearizable.
+ */
+public class ConcurrentPercolation {
+    private final AtomicLongArray openBits; // one bit per site, 64 sites per word
+    private final int n;
+    private final int size;
+    private final int topVirtualSiteNum;
+    private final int bottomVirtualSiteNum;
+    private final LongAdder openSites;
+    private final ConcurrentUnionFind wUnionFind;
+    private final ConcurrentUnionFind fullUnionFind; // no bottom virtual site, so no backwash
+
+    // creates n-by-n grid, with all sites initially blocked
+    public ConcurrentPercolation(int n) {
+        if (n <= 0 || (long) n * n + 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+
+        this.n = n;
+        this.size = n * n;
+        this.openBits = new AtomicLongArray(SiteStore.words(this.size));
+        this.topVirtualSiteNum = 0;
+        this.bottomVirtualSiteNum = this.size + 1;
+        this.openSites = new LongAdder();
+        this.wUnionFind = new ConcurrentUnionFind(this.size + 2); // include two virtual sites
+        this.fullUnionFind = new ConcurrentUnionFind(this.size + 1); // include top virtual site only
+    }
+
+    // opens the site (row, col) if it is not open already; safe to call from any thread
+    public void open(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+
+        int site = (row - 1) * this.n + (col - 1);
+        if (!markOpen(site)) return; // already open, or another thread won the race
+        this.openSites.increment();
+        int siteNum = site + 1;
+
+        // connect to adjacent open-top site (or virtual top site 0)
+        if (row == 1) {
+            this.wUnionFind.union(siteNum, this.topVirtualSiteNum);
+            this.fullUnionFind.union(siteNum, this.topVirtualSiteNum);
+        } else if (isOpen(site - this.n)) {
+            connect(siteNum, siteNum - this.n);
+        }
+
+        // connect to adjacent open-left site
+        if (col > 1 && isOpen(site - 1)) {
+            connect(siteNum, siteNum - 1);
+        }
+
+        // connect to adjacent open-right site
+        if (col < this.n && isOpen(site + 1)) {
+            connect(siteNum, siteNum + 1);
+        }
+
+        // connect to adjacent open-bottom site (or virtual bottom site this.size + 1)
+        if (row == this.n) {
+            this.wUnionFind.union(siteNum, this.bottomVirtualSiteNum); // percolation only
+        } else if (isOpen(site + this.n)) {
+            connect(siteNum, siteNum + this.n);
+        }
+    }
+
+    // union two open sites in both the percolation and the fullness union-find
+    private void connect(int p, int q) {
+        this.wUnionFind.union(p, q);
+        this.fullUnionFind.union(p, q);
+    }
+
+    // atomically set the site's open bit; true if this call is the one that opened it
+    private boolean markOpen(int site) {
+        int w = site >>> 6;
+        long bit = 1L << site;
+        while (true) {
+            long word = this.openBits.get(w);
+            if ((word & bit) != 0) return false;
+            if (this.openBits.compareAndSet(w, word, word | bit)) return true;
+        }
+    }
+
+    private boolean isOpen(int site) {
+        return (this.openBits.get(site >>> 6) & 1L << site) != 0;
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+        return isOpen((row - 1) * this.n + (col - 1));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+        int site = (row - 1) * this.n + (col - 1);
+        return isOpen(site) && this.fullUnionFind.connected(site + 1, this.topVirtualSiteNum);
+    }
+
+    // returns the number of open sites; exact once no open() call is in flight
+    public int numberOfOpenSites() {
+        return this.openSites.intValue();
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return this.wUnionFind.connected(this.topVirtualSiteNum, this.bottomVirtualSiteNum);
+    }
+
+    // test client: fills one grid from several threads until it percolates
+    public static void main(String[] args) throws InterruptedException {
+        int n = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+
+        ConcurrentPercolation percolation = new ConcurrentPercolation(n);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            workers[t] = new Thread(() -> {
+                while (!percolation.percolates()) {
+                    percolation.open(random.nextInt(n) + 1, random.nextInt(n) + 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        StdOut.println("Percolates: " + percolation.percolates());
+        StdOut.println("Open fraction: " + (double) percolation.numberOfOpenSites() / ((double) n * n));
+    }
+}
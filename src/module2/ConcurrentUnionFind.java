@@ -0,0 +1,70 @@
+package module2;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free union-find for many threads at once. Roots are linked with a
+ * single compare-and-set, always below the root of higher pseudo-random
+ * priority, which keeps trees shallow in expectation and rules out cycles
+ * without ranks. Finds do path halving with a benign compare-and-set: losing
+ * that race only means a link was not shortened. Arguments are not
+ * validated; callers are trusted to stay in range.
+ */
+final class ConcurrentUnionFind implements UnionFind {
+    private final AtomicIntegerArray parent;
+
+    // creates n singleton sets 0 through n - 1
+    ConcurrentUnionFind(int n) {
+        this.parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            this.parent.set(i, i);
+        }
+    }
+
+    public int find(int p) {
+        while (true) {
+            int up = this.parent.get(p);
+            if (up == p) return p;
+            int grandparent = this.parent.get(up);
+            if (grandparent != up) {
+                this.parent.compareAndSet(p, up, grandparent); // path halving
+            }
+            p = grandparent;
+        }
+    }
+
+    public void union(int p, int q) {
+        while (true) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return;
+            // the root with the lower priority gives up its root status; retry if it lost it meanwhile
+            if (priority(rootP) < priority(rootQ)) {
+                if (this.parent.compareAndSet(rootP, rootP, rootQ)) return;
+            } else {
+                if (this.parent.compareAndSet(rootQ, rootQ, rootP)) return;
+            }
+        }
+    }
+
+    // are p and q in the same set? linearizable even while unions are in flight
+    boolean connected(int p, int q) {
+        while (true) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) return true;
+            // rootP was still a root after rootQ was found, so the sets were disjoint at that point
+            if (this.parent.get(rootP) == rootP) return false;
+        }
+    }
+
+    // a fixed bijective scramble of the index (murmur3 finalizer), so priorities never tie
+    private static int priority(int p) {
+        p ^= p >>> 16;
+        p *= 0x85EBCA6B;
+        p ^= p >>> 13;
+        p *= 0xC2B2AE35;
+        p ^= p >>> 16;
+        return p;
+    }
+}
@@ -0,0 +1,74 @@
+package module2;
+
+/**
+ * Union-find tuned for the percolation hot path: flat int parent links,
+ * union by rank with the ranks kept in a byte array, and path halving on
+ * every find. Arguments are not validated; callers are trusted to stay in
+ * range, which is what lets the calls inline down to a few array accesses.
+ */
+final class FastUnionFind implements UnionFind {
+    private final int[] parent;
+    private final byte[] rank; // upper bound on tree height, at most log2(n)
+
+    // creates n singleton sets 0 through n - 1
+    FastUnionFind(int n) {
+        this.parent = new int[n];
+        this.rank = new byte[n];
+        for (int i = 0; i < n; i++) {
+            this.parent[i] = i;
+        }
+    }
+
+    // the parent links, shared for snapshots
+    int[] parents() {
+        return this.parent;
+    }
+
+    // the ranks, shared for snapshots
+    byte[] ranks() {
+        return this.rank;
+    }
+
+    public int find(int p) {
+        int[] parent = this.parent;
+        int depth = 0;
+        while (p != parent[p]) {
+            int grandparent = parent[parent[p]];
+            depth += grandparent == parent[p] ? 1 : 2; // links skipped over, one when the parent is the root
+            parent[p] = grandparent; // path halving
+            p = grandparent;
+        }
+        if (PercolationMetrics.ENABLED) PercolationMetrics.recordFind(depth);
+        return p;
+    }
+
+    // are the links, as restored from a snapshot, a forest this class could have built? every
+    // link must stay in range and lead to a node of higher rank, which also rules out cycles
+    boolean isConsistent() {
+        int n = this.parent.length;
+        for (int p = 0; p < n; p++) {
+            int up = this.parent[p];
+            if (up < 0 || up >= n || this.rank[p] < 0 || (up != p && this.rank[up] <= this.rank[p])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void union(int p, int q) {
+        if (PercolationMetrics.ENABLED) PercolationMetrics.recordUnion();
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // link the shorter tree below the taller one
+        if (this.rank[rootP] < this.rank[rootQ]) {
+            this.parent[rootP] = rootQ;
+        } else if (this.rank[rootP] > this.rank[rootQ]) {
+            this.parent[rootQ] = rootP;
+        } else {
+            this.parent[rootQ] = rootP;
+            this.rank[rootP]++;
+        }
+    }
+}
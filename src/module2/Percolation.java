@@ -1,37 +1,48 @@
 package module2;
 
 import edu.princeton.cs.algs4.StdOut;
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
 
 public class Percolation {
-    private final double[][] grid;
+    private final SiteStore sites;
     private final int n;
     private final int size;
     private final int topVirtualSiteNum;
     private final int bottomVirtualSiteNum;
     private int openSites;
-    private final WeightedQuickUnionUF wUnionFind;
+    private final UnionFind wUnionFind;
+    private final UnionFind fullUnionFind; // no bottom virtual site, so no backwash
+    private final UnionFindKind unionFindKind;
+    private final boolean offHeap;
 
     // creates n-by-n grid, with all sites initially blocked
     public Percolation(int n) {
-        if (n <= 0) {
+        this(n, false);
+    }
+
+    // creates n-by-n grid, keeping the site states off-heap if requested
+    public Percolation(int n, boolean offHeap) {
+        this(n, UnionFindKind.FAST, offHeap);
+    }
+
+    // creates n-by-n grid on top of the given union-find implementation
+    public Percolation(int n, UnionFindKind unionFindKind, boolean offHeap) {
+        if (unionFindKind == null || n <= 0 || (long) n * n + 2 > Integer.MAX_VALUE) {
             throw new IllegalArgumentException();
         }
 
-        this.grid = new double[n][n];
+        this.sites = SiteStore.create(n * n, offHeap); // all sites start blocked
         this.n = n;
         this.size = n * n;
         this.topVirtualSiteNum = 0;
         this.bottomVirtualSiteNum = this.size + 1;
         this.openSites = 0;
-        this.wUnionFind = new WeightedQuickUnionUF(this.size + 2); // include two virtual sites
-
-        // initialize all sites to be blocked
-        for (int row = 0; row < n; row++) {
-            for (int col = 0; col < n; col++) {
-                this.grid[row][col] = 0; // blocked site
-            }
-        }
+        this.wUnionFind = unionFindKind.create(this.size + 2); // include two virtual sites
+        this.fullUnionFind = unionFindKind.create(this.size + 1); // include top virtual site only
+        this.unionFindKind = unionFindKind;
+        this.offHeap = offHeap;
     }
 
     // opens the site (row, col) if it is not open already
@@ -39,60 +50,86 @@ public class Percolation {
         if (row < 1 || col < 1 || row > this.n || col > this.n) {
             throw new IllegalArgumentException();
         }
+        openSite(siteIndex(row, col), col - 1);
+    }
 
-        if (this.grid[row - 1][col - 1] > 0) return; // open or full
-        this.grid[row - 1][col - 1] = 1; // open site
-        this.openSites++;
-        int siteNum = coordinateToNum(row, col);
-
-        // connect to adjacent open-top site (or virtual top site 0)
-        if (row - 1 == 0) {
-            this.wUnionFind.union(siteNum, this.topVirtualSiteNum);
-            fill(row, col); // fill site by default if connected to top site
-        } else if (this.grid[row - 2][col - 1] > 0) {
-            this.wUnionFind.union(siteNum, siteNum - this.n);
-            if (this.grid[row - 2][col - 1] == 2) {
-                fill(row, col);
+    // opens the sites (rows[i], cols[i]) in order; sites before an invalid one stay open
+    public void openAll(int[] rows, int[] cols) {
+        if (rows == null || cols == null || rows.length != cols.length) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i] - 1;
+            int col = cols[i] - 1;
+            // one unsigned comparison per coordinate rejects both < 1 and > n
+            if (Integer.compareUnsigned(row, this.n) >= 0 || Integer.compareUnsigned(col, this.n) >= 0) {
+                throw new IllegalArgumentException();
             }
+            openSite(row * this.n + col, col);
         }
+    }
 
-        // connect to adjacent open-bottom site (or virtual bottom site this.size + 1)
-        if (row + 1 > this.n) {
-            this.wUnionFind.union(siteNum, this.bottomVirtualSiteNum);
-        } else if (this.grid[row][col - 1] > 0) {
-            this.wUnionFind.union(siteNum, siteNum + this.n);
-            if (this.grid[row][col - 1] == 2) {
-                fill(row, col);
+    // opens the sites whose 0-based row-major ids, (row - 1) * n + (col - 1), remain in the
+    // buffer, consuming them; sites before an invalid id stay open
+    public void openAll(IntBuffer siteIds) {
+        if (siteIds == null) {
+            throw new IllegalArgumentException();
+        }
+        int limit = siteIds.limit();
+        for (int i = siteIds.position(); i < limit; i++) {
+            int site = siteIds.get(i);
+            if (Integer.compareUnsigned(site, this.size) >= 0) {
+                siteIds.position(i);
+                throw new IllegalArgumentException();
             }
+            openSite(site, site % this.n);
+        }
+        siteIds.position(limit);
+    }
+
+    // opens the given site, whose 0-based column is col, without validating either
+    private void openSite(int site, int col) {
+        if (this.sites.get(site) != SiteStore.BLOCKED) { // already open
+            if (PercolationMetrics.ENABLED) PercolationMetrics.recordRejectedOpen();
+            return;
+        }
+        this.sites.set(site, SiteStore.OPEN);
+        this.openSites++;
+        int siteNum = site + 1;
+
+        // neighbours are visited in increasing address order: up, left, right, down
+
+        // connect to adjacent open-top site (or virtual top site 0)
+        if (site < this.n) {
+            this.wUnionFind.union(siteNum, this.topVirtualSiteNum);
+            this.fullUnionFind.union(siteNum, this.topVirtualSiteNum);
+        } else if (this.sites.get(site - this.n) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum - this.n);
         }
 
         // connect to adjacent open-left site
-        if (col - 1 > 0 && this.grid[row - 1][col - 2] > 0) {
-            this.wUnionFind.union(siteNum, siteNum - 1);
-            if (this.grid[row - 1][col - 2] == 2) {
-                fill(row, col);
-            }
+        if (col > 0 && this.sites.get(site - 1) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum - 1);
         }
 
         // connect to adjacent open-right site
-        if (col + 1 <= this.n && this.grid[row - 1][col] > 0) {
-            this.wUnionFind.union(siteNum, siteNum + 1);
-            if (this.grid[row - 1][col] == 2) {
-                fill(row, col);
-            }
+        if (col + 1 < this.n && this.sites.get(site + 1) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum + 1);
+        }
+
+        // connect to adjacent open-bottom site (or virtual bottom site this.size + 1)
+        if (site >= this.size - this.n) {
+            this.wUnionFind.union(siteNum, this.bottomVirtualSiteNum); // percolation only
+        } else if (this.sites.get(site + this.n) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum + this.n);
         }
     }
 
-    private void fill(int row, int col) {
-        if (row < 1 || col < 1 || row > this.n || col > this.n) return;
-        if (this.grid[row - 1][col - 1] != 1) return;
-        // fill current site
-        this.grid[row - 1][col - 1] = 2;
-        // fill any adjacent open sites
-        fill(row - 1, col);
-        fill(row + 1, col);
-        fill(row, col - 1);
-        fill(row, col + 1);
+    // union two open sites in both the percolation and the fullness union-find
+    private void connect(int p, int q) {
+        if (PercolationMetrics.ENABLED) PercolationMetrics.recordNeighbourConnection();
+        this.wUnionFind.union(p, q);
+        this.fullUnionFind.union(p, q);
     }
 
     // is the site (row, col) open?
@@ -100,7 +137,7 @@ public class Percolation {
         if (row < 1 || col < 1 || row > this.n || col > this.n) {
             throw new IllegalArgumentException();
         }
-        return grid[row - 1][col - 1] != 0;
+        return this.sites.get(siteIndex(row, col)) != SiteStore.BLOCKED;
     }
 
     // is the site (row, col) full?
@@ -108,7 +145,10 @@ public class Percolation {
         if (row < 1 || col < 1 || row > this.n || col > this.n) {
             throw new IllegalArgumentException();
         }
-        return this.grid[row - 1][col - 1] == 2;
+        int site = siteIndex(row, col);
+        // full sites are connected to the top without going through the bottom virtual site
+        return this.sites.get(site) != SiteStore.BLOCKED
+                && this.fullUnionFind.find(site + 1) == this.fullUnionFind.find(this.topVirtualSiteNum);
     }
 
     // returns the number of open sites
@@ -116,14 +156,108 @@ public class Percolation {
         return this.openSites;
     }
 
+    // returns the grid dimension n
+    int gridSize() {
+        return this.n;
+    }
+
     // does the system percolate?
     public boolean percolates() {
         // check if virtual sites 0 and this.size + 1 are connected (have the same parent)
         return this.wUnionFind.find(0) == this.wUnionFind.find(this.size + 1);
     }
 
-    private int coordinateToNum(int row, int col) {
-        return (row - 1) * this.n + col;
+    // writes n, the open-site count, the backing choices, the site words and,
+    // for the FAST union-find, the parent and rank arrays of both union-finds
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.putInt(this.n);
+        out.putInt(this.openSites);
+        out.putByte((byte) this.unionFindKind.ordinal());
+        out.putByte((byte) (this.offHeap ? 1 : 0));
+        for (int w = 0; w < this.sites.wordCount(); w++) {
+            out.putLong(this.sites.word(w));
+        }
+        if (this.unionFindKind == UnionFindKind.FAST) {
+            out.putInts(((FastUnionFind) this.wUnionFind).parents());
+            out.putBytes(((FastUnionFind) this.wUnionFind).ranks());
+            out.putInts(((FastUnionFind) this.fullUnionFind).parents());
+            out.putBytes(((FastUnionFind) this.fullUnionFind).ranks());
+        }
+    }
+
+    // restores a grid written by writeSnapshot; other union-finds are rebuilt from the open sites
+    static Percolation readSnapshot(SnapshotReader in) throws IOException {
+        int n = in.getInt();
+        int openSites = in.getInt();
+        int kind = in.getByte();
+        boolean offHeap = in.getByte() != 0;
+        if (n <= 0 || (long) n * n + 2 > Integer.MAX_VALUE || openSites < 0 || openSites > n * n
+                || kind < 0 || kind >= UnionFindKind.values().length) {
+            throw new IOException("corrupt percolation snapshot");
+        }
+        // check the size before allocating, so a corrupt n cannot ask for a huge grid
+        long sites = (long) n * n;
+        long bytes = (long) SiteStore.words(sites) * Long.BYTES;
+        if (kind == UnionFindKind.FAST.ordinal()) {
+            bytes += (2 * sites + 3) * (Integer.BYTES + Byte.BYTES); // both parent and rank arrays
+        }
+        if (in.remaining() != bytes) {
+            throw new IOException("corrupt percolation snapshot");
+        }
+
+        Percolation percolation = new Percolation(n, UnionFindKind.values()[kind], offHeap);
+        percolation.openSites = openSites;
+        long counted = 0;
+        int wordCount = percolation.sites.wordCount();
+        for (int w = 0; w < wordCount; w++) {
+            long word = in.getLong();
+            percolation.sites.setWord(w, word);
+            counted += Long.bitCount(word);
+        }
+        int tailBits = percolation.size & 63; // sites in a partly used last word
+        if (counted != openSites
+                || (tailBits != 0 && percolation.sites.word(wordCount - 1) >>> tailBits != 0)) {
+            throw new IOException("corrupt percolation snapshot");
+        }
+        if (percolation.unionFindKind == UnionFindKind.FAST) {
+            FastUnionFind wUnionFind = (FastUnionFind) percolation.wUnionFind;
+            FastUnionFind fullUnionFind = (FastUnionFind) percolation.fullUnionFind;
+            in.getInts(wUnionFind.parents());
+            in.getBytes(wUnionFind.ranks());
+            in.getInts(fullUnionFind.parents());
+            in.getBytes(fullUnionFind.ranks());
+            if (!wUnionFind.isConsistent() || !fullUnionFind.isConsistent()) {
+                throw new IOException("corrupt percolation snapshot");
+            }
+        } else {
+            percolation.reconnect();
+        }
+        return percolation;
+    }
+
+    // rebuild both union-finds from the open sites, joining each one to its up and left neighbours
+    private void reconnect() {
+        for (int site = 0; site < this.size; site++) {
+            if (this.sites.get(site) == SiteStore.BLOCKED) continue;
+            int siteNum = site + 1;
+            if (site < this.n) {
+                this.wUnionFind.union(siteNum, this.topVirtualSiteNum);
+                this.fullUnionFind.union(siteNum, this.topVirtualSiteNum);
+            } else if (this.sites.get(site - this.n) != SiteStore.BLOCKED) {
+                connect(siteNum, siteNum - this.n);
+            }
+            if (site % this.n > 0 && this.sites.get(site - 1) != SiteStore.BLOCKED) {
+                connect(siteNum, siteNum - 1);
+            }
+            if (site >= this.size - this.n) {
+                this.wUnionFind.union(siteNum, this.bottomVirtualSiteNum);
+            }
+        }
+    }
+
+    // flat, 0-based, row-major index of site (row, col); its union-find node is index + 1
+    private int siteIndex(int row, int col) {
+        return (row - 1) * this.n + (col - 1);
     }
 
     // test client (optional)
@@ -174,7 +308,8 @@ public class Percolation {
         StdOut.println("Percolates: " + percolation.percolates());
         for (int row = 0; row < percolation.n; row++) {
             for (int col = 0; col < percolation.n; col++) {
-                StdOut.print(percolation.grid[row][col] + " | ");
+                int state = percolation.isFull(row + 1, col + 1) ? 2 : percolation.sites.get(row * percolation.n + col);
+                StdOut.print(state + " | ");
             }
             StdOut.println();
         }
@@ -0,0 +1,99 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A long PercolationStats run that survives JVM restarts. Trials run in
+ * chunks and a checkpoint is written after every chunk, holding the run's
+ * parameters, the number of completed trials and their running statistics.
+ * Trial t always draws from the stream seeded by (seed, t), so the master
+ * seed and the completed count are the whole random state, and a resumed run
+ * produces exactly the statistics of an uninterrupted one.
+ */
+public final class PercolationCampaign {
+    private static final int MAGIC = 0x50434D50; // "PCMP"
+    private static final int VERSION = 1;
+
+    private PercolationCampaign() {
+    }
+
+    // run trials 0 through trials - 1, checkpointing every checkpointEvery trials; if the
+    // checkpoint file exists, the run resumes from it and must have the same parameters
+    public static PercolationStats run(Path checkpoint, int n, long trials, UnionFindKind unionFindKind,
+                                       TrialMode trialMode, long seed, int threads, long checkpointEvery)
+            throws IOException {
+        if (checkpoint == null || n <= 0 || trials <= 0 || unionFindKind == null || trialMode == null
+                || threads <= 0 || checkpointEvery <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        RunningStats stats = new RunningStats();
+        long completed = 0;
+        if (Files.exists(checkpoint)) {
+            try (FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.READ)) {
+                SnapshotReader in = new SnapshotReader(channel);
+                PercolationSnapshot.checkHeader(in, MAGIC, VERSION, checkpoint);
+                if (in.getInt() != n || in.getByte() != unionFindKind.ordinal()
+                        || in.getByte() != trialMode.ordinal() || in.getLong() != seed
+                        || in.getLong() != trials || in.getLong() != checkpointEvery) {
+                    throw new IllegalArgumentException("checkpoint belongs to a different run: " + checkpoint);
+                }
+                completed = in.getLong();
+                stats = new RunningStats(in.getLong(), in.getDouble(), in.getDouble());
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (completed < trials) {
+                long to = Math.min(trials, completed + checkpointEvery);
+                stats.merge(pool.invoke(new PercolationStats.TrialTask(n, unionFindKind, trialMode, seed,
+                        completed, to)));
+                completed = to;
+
+                long done = completed;
+                RunningStats snapshot = stats;
+                PercolationSnapshot.write(checkpoint, MAGIC, VERSION, out -> {
+                    out.putInt(n);
+                    out.putByte((byte) unionFindKind.ordinal());
+                    out.putByte((byte) trialMode.ordinal());
+                    out.putLong(seed);
+                    out.putLong(trials);
+                    out.putLong(checkpointEvery);
+                    out.putLong(done);
+                    out.putLong(snapshot.count());
+                    out.putDouble(snapshot.mean());
+                    out.putDouble(snapshot.m2());
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new PercolationStats(stats);
+    }
+
+    // test client: checkpoint file, n, trials, then optionally threads and seed
+    public static void main(String[] args) throws IOException {
+        Path checkpoint = Paths.get(args[0]);
+        int n = Integer.parseInt(args[1]);
+        long trials = Long.parseLong(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+
+        PercolationStats percolationStats = run(checkpoint, n, trials, UnionFindKind.FAST, TrialMode.RANDOM_SITES,
+                seed, threads, Math.max(1, trials / 100));
+        StdOut.println("mean = " + percolationStats.mean());
+        StdOut.println("stddev = " + percolationStats.stddev());
+        StdOut.println("95% confidence interval = [" + percolationStats.confidenceLo() +
+                ", " + percolationStats.confidenceHi() + "]");
+    }
+}
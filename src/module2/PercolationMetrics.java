@@ -0,0 +1,180 @@
+package module2;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional hot-path counters for Percolation and PercolationStats, published
+ * through the {@link PercolationMetricsMXBean} and as JFR events. They are
+ * switched on with -Dmodule2.metrics=true; ENABLED is a static final
+ * constant, so when it is false the JIT folds every guarded call site away.
+ */
+public final class PercolationMetrics implements PercolationMetricsMXBean {
+    static final boolean ENABLED = Boolean.getBoolean("module2.metrics");
+
+    private static final PercolationMetrics INSTANCE = new PercolationMetrics();
+
+    private final LongAdder unionCalls = new LongAdder();
+    private final LongAdder findCalls = new LongAdder();
+    private final LongAccumulator maxTreeDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder neighbourConnections = new LongAdder();
+    private final LongAdder rejectedOpens = new LongAdder();
+    private final LongAdder trials = new LongAdder();
+    private final LongAdder trialNanos = new LongAdder();
+    private final AtomicLong lastTrialNanos = new AtomicLong();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(INSTANCE, new ObjectName("module2:type=PercolationMetrics"));
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            }
+            FlightRecorder.addPeriodicEvent(CountersEvent.class, INSTANCE::emitCounters);
+        }
+    }
+
+    private PercolationMetrics() {
+    }
+
+    // the process-wide counters
+    public static PercolationMetricsMXBean get() {
+        return INSTANCE;
+    }
+
+    static void recordUnion() {
+        INSTANCE.unionCalls.increment();
+    }
+
+    static void recordFind(int depth) {
+        INSTANCE.findCalls.increment();
+        INSTANCE.maxTreeDepth.accumulate(depth);
+    }
+
+    static void recordNeighbourConnection() {
+        INSTANCE.neighbourConnections.increment();
+    }
+
+    static void recordRejectedOpen() {
+        INSTANCE.rejectedOpens.increment();
+    }
+
+    static void recordTrial(int n, double threshold, long nanos) {
+        INSTANCE.trials.increment();
+        INSTANCE.trialNanos.add(nanos);
+        INSTANCE.lastTrialNanos.set(nanos);
+        TrialEvent event = new TrialEvent();
+        if (event.isEnabled()) {
+            event.n = n;
+            event.threshold = threshold;
+            event.wallTime = nanos;
+            event.commit();
+        }
+    }
+
+    public long getUnionCalls() {
+        return this.unionCalls.sum();
+    }
+
+    public long getFindCalls() {
+        return this.findCalls.sum();
+    }
+
+    public long getMaxTreeDepth() {
+        return this.maxTreeDepth.get();
+    }
+
+    public long getNeighbourConnections() {
+        return this.neighbourConnections.sum();
+    }
+
+    public long getRejectedOpens() {
+        return this.rejectedOpens.sum();
+    }
+
+    public long getTrials() {
+        return this.trials.sum();
+    }
+
+    public long getTrialNanos() {
+        return this.trialNanos.sum();
+    }
+
+    public long getLastTrialNanos() {
+        return this.lastTrialNanos.get();
+    }
+
+    public void reset() {
+        this.unionCalls.reset();
+        this.findCalls.reset();
+        this.maxTreeDepth.reset();
+        this.neighbourConnections.reset();
+        this.rejectedOpens.reset();
+        this.trials.reset();
+        this.trialNanos.reset();
+        this.lastTrialNanos.set(0);
+    }
+
+    private void emitCounters() {
+        CountersEvent event = new CountersEvent();
+        event.unionCalls = getUnionCalls();
+        event.findCalls = getFindCalls();
+        event.maxTreeDepth = getMaxTreeDepth();
+        event.neighbourConnections = getNeighbourConnections();
+        event.rejectedOpens = getRejectedOpens();
+        event.trials = getTrials();
+        event.commit();
+    }
+
+    @Name("module2.PercolationTrial")
+    @Label("Percolation Trial")
+    @Category("Percolation")
+    static final class TrialEvent extends Event {
+        @Label("Grid Size")
+        int n;
+
+        @Label("Threshold")
+        double threshold;
+
+        @Label("Wall Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long wallTime;
+    }
+
+    @Name("module2.PercolationCounters")
+    @Label("Percolation Counters")
+    @Category("Percolation")
+    @Period("1 s")
+    static final class CountersEvent extends Event {
+        @Label("Union Calls")
+        long unionCalls;
+
+        @Label("Find Calls")
+        long findCalls;
+
+        @Label("Max Tree Depth")
+        long maxTreeDepth;
+
+        @Label("Neighbour Connections")
+        long neighbourConnections;
+
+        @Label("Rejected Opens")
+        long rejectedOpens;
+
+        @Label("Trials")
+        long trials;
+    }
+}
@@ -0,0 +1,36 @@
+package module2;
+
+/**
+ * Management interface of the percolation hot-path counters, registered as
+ * module2:type=PercolationMetrics when metrics are enabled.
+ */
+public interface PercolationMetricsMXBean {
+
+    // union calls on the percolation union-finds
+    long getUnionCalls();
+
+    // find calls on the percolation union-finds, including those made by union (FAST union-find only)
+    long getFindCalls();
+
+    // most links from a site to its root that a single find has walked, before halving the path
+    // (FAST union-find only)
+    long getMaxTreeDepth();
+
+    // neighbour connections made by open(), the work that used to be done by fill
+    long getNeighbourConnections();
+
+    // open() calls on sites that were already open
+    long getRejectedOpens();
+
+    // PercolationStats trials completed
+    long getTrials();
+
+    // total wall time of those trials, in nanoseconds
+    long getTrialNanos();
+
+    // wall time of the most recent trial, in nanoseconds
+    long getLastTrialNanos();
+
+    // zero every counter
+    void reset();
+}
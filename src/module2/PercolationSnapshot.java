@@ -0,0 +1,67 @@
+package module2;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact, versioned binary snapshots of a {@link Percolation} grid: an
+ * 8-byte header (magic, version) followed by the grid's raw site words and
+ * union-find arrays, streamed sequentially through a FileChannel rather than
+ * serialised object by object. Snapshots are written to a temporary file and
+ * renamed into place, so a crash mid-write leaves the previous one intact.
+ */
+public final class PercolationSnapshot {
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int VERSION = 1;
+
+    private PercolationSnapshot() {
+    }
+
+    // writes the complete state of the grid to the given file
+    public static void save(Percolation percolation, Path path) throws IOException {
+        write(path, MAGIC, VERSION, percolation::writeSnapshot);
+    }
+
+    // restores a grid saved by save()
+    public static Percolation load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SnapshotReader in = new SnapshotReader(channel);
+            checkHeader(in, MAGIC, VERSION, path);
+            Percolation percolation = Percolation.readSnapshot(in);
+            if (!in.atEnd()) {
+                throw new IOException("trailing data in " + path);
+            }
+            return percolation;
+        }
+    }
+
+    // the body of a snapshot file, after its header
+    interface Body {
+        void write(SnapshotWriter out) throws IOException;
+    }
+
+    // writes header and body to a temporary file, forces it to disk and renames it over path
+    static void write(Path path, int magic, int version, Body body) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotWriter out = new SnapshotWriter(channel);
+            out.putInt(magic);
+            out.putInt(version);
+            body.write(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void checkHeader(SnapshotReader in, int magic, int version, Path path) throws IOException {
+        if (in.getInt() != magic || in.getInt() != version) {
+            throw new IOException("not a version " + version + " snapshot: " + path);
+        }
+    }
+}
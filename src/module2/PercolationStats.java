@@ -1,10 +1,16 @@
 package module2;
 
 import edu.princeton.cs.algs4.StdOut;
-import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class PercolationStats {
+    private static final int TRIALS_PER_TASK = 4; // fixed, so results never depend on the thread count
+    private static final int MIN_BATCH = 32;      // trials between precision checks, at least
+
+    private final long trials;
     private final double mean;
     private final double stddev;
     private final double confidenceLo;
@@ -12,25 +18,174 @@ public class PercolationStats {
 
     // perform independent trials on an n-by-n grid
     public PercolationStats(int n, int trials) {
-        if (n <= 0 || trials <= 0) {
+        this(n, trials, UnionFindKind.FAST);
+    }
+
+    // perform independent trials on an n-by-n grid built on the given union-find
+    public PercolationStats(int n, int trials, UnionFindKind unionFindKind) {
+        this(n, trials, unionFindKind, new SplittableRandom().nextLong(), 1);
+    }
+
+    // perform independent trials on the given number of threads; every trial draws from its
+    // own random stream derived from seed, so the results never depend on the thread count
+    public PercolationStats(int n, int trials, UnionFindKind unionFindKind, long seed, int threads) {
+        this(n, trials, unionFindKind, TrialMode.RANDOM_SITES, seed, threads);
+    }
+
+    // perform independent trials, picking the sites to open as the trial mode says
+    public PercolationStats(int n, int trials, UnionFindKind unionFindKind, TrialMode trialMode,
+                            long seed, int threads) {
+        this(runTrials(n, trials, unionFindKind, trialMode, seed, threads));
+    }
+
+    // statistics of already completed trials
+    PercolationStats(RunningStats stats) {
+        this.trials = stats.count();
+        this.mean = stats.mean();
+        this.stddev = stats.stddev();
+        this.confidenceLo = this.mean - stats.halfWidth95();
+        this.confidenceHi = this.mean + stats.halfWidth95();
+    }
+
+    // perform trials until the 95% confidence interval is narrower than +/- epsilon, or until
+    // budgetMillis have elapsed (0 for no time limit), whichever comes first
+    public static PercolationStats untilPrecise(int n, double epsilon, long budgetMillis, UnionFindKind unionFindKind,
+                                                TrialMode trialMode, long seed, int threads) {
+        if (n <= 0 || !(epsilon > 0) || budgetMillis < 0 || unionFindKind == null || trialMode == null
+                || threads <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        long start = System.nanoTime();
+        long budgetNanos = budgetMillis * 1_000_000;
+        RunningStats stats = new RunningStats();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (stats.count() < 2 || !(stats.halfWidth95() < epsilon)) {
+                long elapsed = System.nanoTime() - start;
+                if (budgetMillis > 0 && elapsed >= budgetNanos) break;
+                // aim for the trial count the current estimate needs, but neither crawl nor overshoot wildly
+                double needed = Math.pow(RunningStats.CONFIDENCE_95 * stats.stddev() / epsilon, 2) - stats.count();
+                long batch = Math.max(MIN_BATCH, Math.min(stats.count(), (long) Math.ceil(needed)));
+                if (budgetMillis > 0 && stats.count() == 0) {
+                    // nothing to tell the time a trial takes yet, so start with about a trial per thread
+                    batch = threads;
+                } else if (budgetMillis > 0) {
+                    // and no more than the time left is expected to allow
+                    double nanosPerTrial = (double) elapsed / stats.count();
+                    batch = Math.max(1, Math.min(batch, (long) ((budgetNanos - elapsed) / nanosPerTrial)));
+                }
+                long from = stats.count();
+                stats.merge(pool.invoke(new TrialTask(n, unionFindKind, trialMode, seed, from, from + batch)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new PercolationStats(stats);
+    }
+
+    // run trials 0 through trials - 1 on a pool of the given number of threads
+    private static RunningStats runTrials(int n, int trials, UnionFindKind unionFindKind, TrialMode trialMode,
+                                          long seed, int threads) {
+        if (n <= 0 || trials <= 0 || unionFindKind == null || trialMode == null || threads <= 0) {
             throw new IllegalArgumentException();
         }
 
-        double[] percolationThresholds = new double[trials];
-        for (int t = 0; t < trials; t++) {
-            Percolation percolation = new Percolation(n);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new TrialTask(n, unionFindKind, trialMode, seed, 0, trials));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // open random sites until the grid percolates and return the fraction of open sites;
+    // siteOrder is scratch space of n * n entries, only used in SHUFFLED_SITES mode
+    static double trial(int n, UnionFindKind unionFindKind, TrialMode trialMode,
+                        SplittableRandom random, int[] siteOrder) {
+        Percolation percolation = new Percolation(n, unionFindKind, false);
+        if (trialMode == TrialMode.RANDOM_SITES) {
             while (!percolation.percolates()) {
-                int row = StdRandom.uniformInt(n) + 1;
-                int col = StdRandom.uniformInt(n) + 1;
+                int row = random.nextInt(n) + 1;
+                int col = random.nextInt(n) + 1;
                 percolation.open(row, col);
             }
-            percolationThresholds[t] = (double) percolation.numberOfOpenSites() / (n * n);
+        } else {
+            int size = n * n;
+            for (int i = 0; i < size; i++) {
+                siteOrder[i] = i;
+            }
+            // Fisher-Yates, one swap per opened site, so the shuffle stops when the trial does
+            for (int i = 0; !percolation.percolates(); i++) {
+                int j = i + random.nextInt(size - i);
+                int site = siteOrder[j];
+                siteOrder[j] = siteOrder[i];
+                siteOrder[i] = site;
+                percolation.open(site / n + 1, site % n + 1);
+            }
+        }
+        return percolation.numberOfOpenSites() / ((double) n * n);
+    }
+
+    // seed of the random stream for the given trial (SplitMix64 finalizer over seed and trial)
+    static long trialSeed(long seed, long trial) {
+        long z = seed + (trial + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // runs trials lo (inclusive) through hi (exclusive), splitting the range across workers;
+    // the split points depend only on the range, so partial results always merge the same way
+    static final class TrialTask extends RecursiveTask<RunningStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final int n;
+        private final UnionFindKind unionFindKind;
+        private final TrialMode trialMode;
+        private final long seed;
+        private final long lo;
+        private final long hi;
+
+        TrialTask(int n, UnionFindKind unionFindKind, TrialMode trialMode, long seed, long lo, long hi) {
+            this.n = n;
+            this.unionFindKind = unionFindKind;
+            this.trialMode = trialMode;
+            this.seed = seed;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected RunningStats compute() {
+            if (this.hi - this.lo > TRIALS_PER_TASK) {
+                long mid = (this.lo + this.hi) >>> 1;
+                TrialTask right = new TrialTask(this.n, this.unionFindKind, this.trialMode, this.seed, mid, this.hi);
+                right.fork();
+                RunningStats stats = new TrialTask(this.n, this.unionFindKind, this.trialMode, this.seed,
+                        this.lo, mid).compute();
+                stats.merge(right.join());
+                return stats;
+            }
+            RunningStats stats = new RunningStats();
+            int[] siteOrder = this.trialMode == TrialMode.SHUFFLED_SITES ? new int[this.n * this.n] : null;
+            for (long t = this.lo; t < this.hi; t++) {
+                SplittableRandom random = new SplittableRandom(trialSeed(this.seed, t));
+                if (PercolationMetrics.ENABLED) {
+                    long start = System.nanoTime();
+                    double threshold = trial(this.n, this.unionFindKind, this.trialMode, random, siteOrder);
+                    PercolationMetrics.recordTrial(this.n, threshold, System.nanoTime() - start);
+                    stats.add(threshold);
+                } else {
+                    stats.add(trial(this.n, this.unionFindKind, this.trialMode, random, siteOrder));
+                }
+            }
+            return stats;
         }
-        this.mean = StdStats.mean(percolationThresholds);
-        this.stddev = StdStats.stddev(percolationThresholds);
-        double CONFIDENCE_95 = 1.96;
-        this.confidenceLo = this.mean - (CONFIDENCE_95 * this.stddev / Math.sqrt(trials));
-        this.confidenceHi = this.mean + (CONFIDENCE_95 * this.stddev / Math.sqrt(trials));
+    }
+
+    // number of trials performed
+    public long trials() {
+        return this.trials;
     }
 
     // sample mean of percolation threshold
@@ -53,15 +208,24 @@ public class PercolationStats {
         return this.confidenceHi;
     }
 
-    // test client (see below)
+    // test client (see below); optional further arguments:
+    // union-find (FAST or ALGS4), threads, seed, trial mode (RANDOM_SITES or SHUFFLED_SITES)
     public static void main(String[] args) {
         int n = Integer.parseInt(args[0]);
         int trials = Integer.parseInt(args[1]);
+        UnionFindKind unionFindKind = args.length > 2 ? UnionFindKind.valueOf(args[2]) : UnionFindKind.FAST;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+        TrialMode trialMode = args.length > 5 ? TrialMode.valueOf(args[5]) : TrialMode.RANDOM_SITES;
 
-        PercolationStats percolationStats = new PercolationStats(n, trials);
+        long start = System.nanoTime();
+        PercolationStats percolationStats =
+                new PercolationStats(n, trials, unionFindKind, trialMode, seed, threads);
+        double elapsed = (System.nanoTime() - start) / 1e9;
         StdOut.println("mean = " + percolationStats.mean());
         StdOut.println("stddev = " + percolationStats.stddev());
         StdOut.println("95% confidence interval = [" + percolationStats.confidenceLo() +
                 ", " + percolationStats.confidenceHi() + "]");
+        StdOut.println("elapsed time (" + unionFindKind + ") = " + elapsed + "s");
     }
 }
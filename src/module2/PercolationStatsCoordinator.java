@@ -0,0 +1,210 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads PercolationStats trials over {@link PercolationStatsWorker}s in
+ * other JVMs, on this host or any host reachable over TCP. The trial range
+ * is cut into fixed blocks that idle workers pull one at a time; the partial
+ * statistics of the blocks are merged in block order, so the result depends
+ * only on the parameters and never on the number or speed of the workers.
+ * A worker whose request fails, or cannot be reached or answer within a
+ * timeout sized to the block, is dropped and its block handed to the
+ * others; the run only fails once no worker is left.
+ */
+public final class PercolationStatsCoordinator {
+    private static final int BLOCKS = 256; // upper bound on the number of blocks a run is cut into
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final long BASE_TIMEOUT_MILLIS = 30_000;   // read timeout allowed any request
+    private static final long SITES_PER_TIMEOUT_MILLI = 1_000; // plus a millisecond per this many sites
+
+    private PercolationStatsCoordinator() {
+    }
+
+    // run trials 0 through trials - 1 on the given workers
+    public static PercolationStats run(List<InetSocketAddress> workers, int n, long trials,
+                                       UnionFindKind unionFindKind, TrialMode trialMode, long seed)
+            throws IOException {
+        if (workers == null || workers.isEmpty() || n <= 0 || (long) n * n + 2 > Integer.MAX_VALUE
+                || trials <= 0 || unionFindKind == null || trialMode == null) {
+            throw new IllegalArgumentException();
+        }
+
+        long blockSize = (trials + BLOCKS - 1) / BLOCKS;
+        int blocks = (int) ((trials + blockSize - 1) / blockSize);
+        RunningStats[] results = new RunningStats[blocks];
+        AtomicInteger nextBlock = new AtomicInteger();
+        Queue<Integer> retries = new ConcurrentLinkedQueue<>(); // blocks whose worker failed
+        List<IOException> failures = Collections.synchronizedList(new ArrayList<>());
+
+        // a worker that fails leaves its block to the others; it may do so after they ran out of
+        // blocks and stopped, so keep going in rounds over the healthy workers until none is left
+        List<InetSocketAddress> healthy = new ArrayList<>(workers);
+        while (true) {
+            List<InetSocketAddress> round = healthy;
+            boolean[] failed = new boolean[round.size()];
+            ExecutorService executor = Executors.newFixedThreadPool(round.size());
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int w = 0; w < round.size(); w++) {
+                    InetSocketAddress worker = round.get(w);
+                    int index = w;
+                    futures.add(executor.submit(() -> {
+                        while (true) {
+                            Integer block = retries.poll();
+                            if (block == null) {
+                                int fresh = nextBlock.getAndIncrement();
+                                if (fresh >= blocks) return;
+                                block = fresh;
+                            }
+                            long from = block * blockSize;
+                            long to = Math.min(trials, from + blockSize);
+                            try {
+                                results[block] = request(worker, n, unionFindKind, trialMode, seed, from, to);
+                            } catch (IOException e) {
+                                retries.add(block);
+                                failures.add(e);
+                                failed[index] = true;
+                                return;
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (retries.isEmpty()) break;
+            healthy = new ArrayList<>();
+            for (int w = 0; w < round.size(); w++) {
+                if (!failed[w]) healthy.add(round.get(w));
+            }
+            if (healthy.isEmpty()) {
+                IOException failure = new IOException("every worker failed");
+                failures.forEach(failure::addSuppressed);
+                throw failure;
+            }
+        }
+
+        RunningStats stats = new RunningStats();
+        for (RunningStats result : results) {
+            stats.merge(result);
+        }
+        return new PercolationStats(stats);
+    }
+
+    // sends one trial range to a worker and waits for its partial statistics; a worker that
+    // hangs or went silent shows up as a SocketTimeoutException
+    private static RunningStats request(InetSocketAddress worker, int n, UnionFindKind unionFindKind,
+                                        TrialMode trialMode, long seed, long from, long to) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(worker, CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(readTimeoutMillis(n, to - from));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(PercolationStatsWorker.MAGIC);
+            out.writeInt(PercolationStatsWorker.VERSION);
+            out.writeInt(n);
+            out.writeByte(unionFindKind.ordinal());
+            out.writeByte(trialMode.ordinal());
+            out.writeLong(seed);
+            out.writeLong(from);
+            out.writeLong(to);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readByte() != PercolationStatsWorker.OK) {
+                throw new IOException(worker + " failed trials " + from + ".." + to + ": " + in.readUTF());
+            }
+            return new RunningStats(in.readLong(), in.readDouble(), in.readDouble());
+        }
+    }
+
+    // how long to wait for the answer to a range of trials: generous, at a microsecond per site
+    // per trial on a single thread, so only a worker that is stuck or gone runs into it
+    private static int readTimeoutMillis(int n, long trials) {
+        double millis = BASE_TIMEOUT_MILLIS + trials * ((double) n * n / SITES_PER_TIMEOUT_MILLI + 1);
+        return (int) Math.min(Integer.MAX_VALUE, millis);
+    }
+
+    // starts worker JVMs on this host, each listening on a free loopback port with the given
+    // number of threads, running on this JVM's class path; destroy the processes when the run is over
+    public static List<Process> startLocalWorkers(int count, int threads, List<InetSocketAddress> addresses)
+            throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        PercolationStatsWorker.class.getName(), "0", Integer.toString(threads))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String port = reader.readLine();
+                if (port == null) {
+                    throw new IOException("worker exited before listening");
+                }
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port.trim())));
+            }
+        } catch (IOException | RuntimeException e) {
+            processes.forEach(Process::destroy);
+            throw e;
+        }
+        return processes;
+    }
+
+    // test client: n, trials, local worker JVMs, and optionally threads per worker and seed
+    public static void main(String[] args) throws IOException {
+        int n = Integer.parseInt(args[0]);
+        long trials = Long.parseLong(args[1]);
+        int workerCount = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+
+        List<InetSocketAddress> workers = new ArrayList<>();
+        List<Process> processes = startLocalWorkers(workerCount, threads, workers);
+        try {
+            PercolationStats percolationStats = run(workers, n, trials, UnionFindKind.FAST,
+                    TrialMode.RANDOM_SITES, seed);
+            StdOut.println("mean = " + percolationStats.mean());
+            StdOut.println("stddev = " + percolationStats.stddev());
+            StdOut.println("95% confidence interval = [" + percolationStats.confidenceLo() +
+                    ", " + percolationStats.confidenceHi() + "]");
+        } finally {
+            processes.forEach(Process::destroy);
+        }
+    }
+}
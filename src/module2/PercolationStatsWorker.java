@@ -0,0 +1,127 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Serves ranges of PercolationStats trials to a {@link PercolationStatsCoordinator}
+ * over TCP. Each connection carries one request (grid size, union-find,
+ * trial mode, master seed and trial range) and gets back the count, mean and
+ * sum of squared deviations of the range's thresholds, ready to be merged.
+ * Trial t draws from the stream seeded by (seed, t), exactly as in-process.
+ */
+public class PercolationStatsWorker implements Closeable {
+    static final int MAGIC = 0x50535457; // "PSTW"
+    static final int VERSION = 1;
+    static final byte OK = 0;
+    static final byte FAILED = 1;
+
+    private final ServerSocket server;
+    private final ForkJoinPool pool;
+    private final Thread acceptor;
+
+    // listens on the given address (null for every interface) and port (0 for any free port),
+    // running trials on the given number of threads
+    public PercolationStatsWorker(InetAddress address, int port, int threads) throws IOException {
+        if (port < 0 || threads <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.server = new ServerSocket(port, 50, address);
+        this.pool = new ForkJoinPool(threads);
+        this.acceptor = new Thread(this::serve, "percolation-stats-worker-" + this.server.getLocalPort());
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    // the port the worker listens on
+    public int port() {
+        return this.server.getLocalPort();
+    }
+
+    // stop accepting requests and release the worker threads
+    public void close() throws IOException {
+        this.server.close();
+        this.pool.shutdown();
+    }
+
+    private void serve() {
+        while (!this.server.isClosed()) {
+            Socket socket;
+            try {
+                socket = this.server.accept();
+            } catch (SocketException e) {
+                return; // closed
+            } catch (IOException e) {
+                continue;
+            }
+            Thread handler = new Thread(() -> handle(socket), this.acceptor.getName() + "-request");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IllegalArgumentException("unsupported protocol");
+                }
+                int n = in.readInt();
+                UnionFindKind unionFindKind = UnionFindKind.values()[in.readByte()];
+                TrialMode trialMode = TrialMode.values()[in.readByte()];
+                long seed = in.readLong();
+                long from = in.readLong();
+                long to = in.readLong();
+                if (n <= 0 || (long) n * n + 2 > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("bad grid size");
+                }
+                if (from < 0 || to <= from) {
+                    throw new IllegalArgumentException("bad trial range");
+                }
+
+                RunningStats stats = this.pool.invoke(
+                        new PercolationStats.TrialTask(n, unionFindKind, trialMode, seed, from, to));
+                out.writeByte(OK);
+                out.writeLong(stats.count());
+                out.writeDouble(stats.mean());
+                out.writeDouble(stats.m2());
+            } catch (RuntimeException e) {
+                out.writeByte(FAILED);
+                out.writeUTF(String.valueOf(e));
+            }
+        } catch (IOException e) {
+            // the coordinator went away; it hands the range to another worker or reports the failure
+        }
+    }
+
+    // runs a worker: port (0 for any free port), and optionally the number of threads and the
+    // address to listen on, loopback by default; "any" listens on every interface, which lets
+    // anyone who can reach the port run trials, so only use it on a trusted network.
+    // Prints the port it listens on as its first line
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.parseInt(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        InetAddress address = InetAddress.getLoopbackAddress();
+        if (args.length > 2) {
+            address = args[2].equals("any") ? null : InetAddress.getByName(args[2]);
+        }
+
+        PercolationStatsWorker worker = new PercolationStatsWorker(address, port, threads);
+        StdOut.println(worker.port());
+        System.out.flush();
+        worker.acceptor.join();
+    }
+}
@@ -0,0 +1,194 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+/**
+ * Newman-Ziff sweeps over an n-by-n grid. Each trial opens every site once,
+ * in random order, and records after every step whether the grid
+ * percolates, the size of the largest cluster and the number of clusters.
+ * One pass per trial therefore yields these observables for every number of
+ * open sites k, and a binomial convolution turns them into curves over the
+ * probability p that a site is open.
+ */
+public class PercolationSweep {
+    private static final byte TOP = 1;    // cluster touches the top row
+    private static final byte BOTTOM = 2; // cluster touches the bottom row
+
+    private final int n;
+    private final int size;
+    private final int trials;
+    private final double[] percolating;    // indexed by open sites k, summed over trials
+    private final double[] largestCluster; // indexed by open sites k, summed over trials
+    private final double[] clusterCount;   // indexed by open sites k, summed over trials
+
+    // perform the given number of sweeps on an n-by-n grid
+    public PercolationSweep(int n, int trials, long seed) {
+        this(n, trials, UnionFindKind.FAST, seed);
+    }
+
+    // perform the given number of sweeps on an n-by-n grid built on the given union-find
+    public PercolationSweep(int n, int trials, UnionFindKind unionFindKind, long seed) {
+        if (n <= 0 || trials <= 0 || unionFindKind == null || (long) n * n + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+
+        this.n = n;
+        this.size = n * n;
+        this.trials = trials;
+        this.percolating = new double[this.size + 1];
+        this.largestCluster = new double[this.size + 1];
+        this.clusterCount = new double[this.size + 1];
+
+        int[] siteOrder = new int[this.size];
+        for (int t = 0; t < trials; t++) {
+            SplittableRandom random = new SplittableRandom(PercolationStats.trialSeed(seed, t));
+            sweep(unionFindKind.create(this.size), random, siteOrder);
+        }
+
+        // percolating[k] holds the number of trials that first percolated at step k so far
+        for (int k = 1; k <= this.size; k++) {
+            this.percolating[k] += this.percolating[k - 1];
+        }
+    }
+
+    // open every site in random order, adding each step's observables to the running sums
+    private void sweep(UnionFind unionFind, SplittableRandom random, int[] siteOrder) {
+        SiteStore sites = SiteStore.create(this.size, false);
+        int[] clusterSize = new int[this.size]; // valid at roots only
+        byte[] edges = new byte[this.size];     // TOP and BOTTOM flags, valid at roots only
+        int largest = 0;
+        int clusters = 0;
+        boolean percolated = false;
+        int[] neighbors = new int[4]; // up, left, right, down; -1 when off the grid
+
+        for (int i = 0; i < this.size; i++) {
+            siteOrder[i] = i;
+        }
+        for (int k = 1; k <= this.size; k++) {
+            int j = k - 1 + random.nextInt(this.size - k + 1);
+            int site = siteOrder[j];
+            siteOrder[j] = siteOrder[k - 1];
+            siteOrder[k - 1] = site;
+
+            int row = site / this.n;
+            int col = site % this.n;
+            sites.set(site, SiteStore.OPEN);
+            clusterSize[site] = 1;
+            edges[site] = (byte) ((row == 0 ? TOP : 0) | (row == this.n - 1 ? BOTTOM : 0));
+            clusters++;
+
+            neighbors[0] = row > 0 ? site - this.n : -1;
+            neighbors[1] = col > 0 ? site - 1 : -1;
+            neighbors[2] = col < this.n - 1 ? site + 1 : -1;
+            neighbors[3] = row < this.n - 1 ? site + this.n : -1;
+            int root = site;
+            for (int neighbor : neighbors) {
+                if (neighbor < 0 || sites.get(neighbor) == SiteStore.BLOCKED) continue;
+                int other = unionFind.find(neighbor);
+                if (other == root) continue;
+                unionFind.union(root, other);
+                int merged = unionFind.find(root);
+                clusterSize[merged] = clusterSize[root] + clusterSize[other];
+                edges[merged] = (byte) (edges[root] | edges[other]);
+                root = merged;
+                clusters--;
+            }
+
+            largest = Math.max(largest, clusterSize[root]);
+            if (!percolated && edges[root] == (TOP | BOTTOM)) {
+                percolated = true;
+                this.percolating[k]++;
+            }
+            this.largestCluster[k] += largest;
+            this.clusterCount[k] += clusters;
+        }
+    }
+
+    // number of sites in the grid
+    public int size() {
+        return this.size;
+    }
+
+    // fraction of trials that percolate once exactly k sites are open
+    public double percolationProbability(int openSites) {
+        return this.percolating[checkOpenSites(openSites)] / this.trials;
+    }
+
+    // mean size of the largest cluster once exactly k sites are open
+    public double meanLargestCluster(int openSites) {
+        return this.largestCluster[checkOpenSites(openSites)] / this.trials;
+    }
+
+    // mean number of clusters once exactly k sites are open
+    public double meanClusterCount(int openSites) {
+        return this.clusterCount[checkOpenSites(openSites)] / this.trials;
+    }
+
+    // probability that the grid percolates when each site is open with probability p
+    public double percolationProbability(double p) {
+        return convolve(this.percolating, p);
+    }
+
+    // mean size of the largest cluster when each site is open with probability p
+    public double meanLargestCluster(double p) {
+        return convolve(this.largestCluster, p);
+    }
+
+    // mean number of clusters when each site is open with probability p
+    public double meanClusterCount(double p) {
+        return convolve(this.clusterCount, p);
+    }
+
+    private int checkOpenSites(int openSites) {
+        if (openSites < 0 || openSites > this.size) {
+            throw new IllegalArgumentException();
+        }
+        return openSites;
+    }
+
+    // sum of B(size, k, p) * sums[k] / trials, walking out from the mode until the weights vanish
+    private double convolve(double[] sums, double p) {
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException();
+        }
+        if (p == 0.0) return sums[0] / this.trials;
+        if (p == 1.0) return sums[this.size] / this.trials;
+
+        int mode = (int) Math.min(this.size, Math.floor((this.size + 1) * p));
+        double odds = p / (1 - p);
+        double total = 1.0;
+        double value = sums[mode];
+
+        // relative weights w(k) / w(mode), from B(N, k + 1, p) / B(N, k, p) = (N - k) / (k + 1) * odds
+        double weight = 1.0;
+        for (int k = mode + 1; k <= this.size && weight > 1e-17 * total; k++) {
+            weight *= (double) (this.size - k + 1) / k * odds;
+            total += weight;
+            value += weight * sums[k];
+        }
+        weight = 1.0;
+        for (int k = mode - 1; k >= 0 && weight > 1e-17 * total; k--) {
+            weight *= (double) (k + 1) / (this.size - k) / odds;
+            total += weight;
+            value += weight * sums[k];
+        }
+        return value / total / this.trials;
+    }
+
+    // test client: prints the percolation curve of an n-by-n grid around the threshold
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : new SplittableRandom().nextLong();
+
+        PercolationSweep sweep = new PercolationSweep(n, trials, seed);
+        StdOut.println("p\tpercolates\tlargest cluster\tclusters");
+        for (int i = 0; i <= 20; i++) {
+            double p = 0.5 + i * 0.01;
+            StdOut.println(String.format("%.2f\t%.4f\t\t%.1f\t\t%.1f", p, sweep.percolationProbability(p),
+                    sweep.meanLargestCluster(p), sweep.meanClusterCount(p)));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+/**
+ * A percolation grid that can take back its most recent opens, for what-if
+ * queries against one base configuration. Every open is journaled together
+ * with the undo-log marks of both union-finds, so rolling back k opens costs
+ * O(k log n) instead of rebuilding the grid. Checkpoints nest like a stack:
+ * rolling back to one discards every checkpoint taken after it.
+ */
+public class RollbackPercolation {
+    private final SiteStore sites;
+    private final int n;
+    private final int size;
+    private final int topVirtualSiteNum;
+    private final int bottomVirtualSiteNum;
+    private final RollbackUnionFind wUnionFind;
+    private final RollbackUnionFind fullUnionFind; // no bottom virtual site, so no backwash
+
+    // journal, one entry per open: the site, and both union-find marks from just before it
+    private int[] openedSites = new int[16];
+    private int[] wMarks = new int[16];
+    private int[] fullMarks = new int[16];
+    private int openSites;
+
+    // creates n-by-n grid, with all sites initially blocked
+    public RollbackPercolation(int n) {
+        if (n <= 0 || (long) n * n + 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+
+        this.sites = SiteStore.create(n * n, false);
+        this.n = n;
+        this.size = n * n;
+        this.topVirtualSiteNum = 0;
+        this.bottomVirtualSiteNum = this.size + 1;
+        this.wUnionFind = new RollbackUnionFind(this.size + 2); // include two virtual sites
+        this.fullUnionFind = new RollbackUnionFind(this.size + 1); // include top virtual site only
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+
+        int site = (row - 1) * this.n + (col - 1);
+        if (this.sites.get(site) != SiteStore.BLOCKED) return; // already open
+        journal(site);
+        this.sites.set(site, SiteStore.OPEN);
+        int siteNum = site + 1;
+
+        // connect to adjacent open-top site (or virtual top site 0)
+        if (row == 1) {
+            this.wUnionFind.union(siteNum, this.topVirtualSiteNum);
+            this.fullUnionFind.union(siteNum, this.topVirtualSiteNum);
+        } else if (this.sites.get(site - this.n) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum - this.n);
+        }
+
+        // connect to adjacent open-left site
+        if (col > 1 && this.sites.get(site - 1) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum - 1);
+        }
+
+        // connect to adjacent open-right site
+        if (col < this.n && this.sites.get(site + 1) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum + 1);
+        }
+
+        // connect to adjacent open-bottom site (or virtual bottom site this.size + 1)
+        if (row == this.n) {
+            this.wUnionFind.union(siteNum, this.bottomVirtualSiteNum); // percolation only
+        } else if (this.sites.get(site + this.n) != SiteStore.BLOCKED) {
+            connect(siteNum, siteNum + this.n);
+        }
+    }
+
+    private void journal(int site) {
+        if (this.openSites == this.openedSites.length) {
+            int capacity = 2 * this.openedSites.length;
+            this.openedSites = Arrays.copyOf(this.openedSites, capacity);
+            this.wMarks = Arrays.copyOf(this.wMarks, capacity);
+            this.fullMarks = Arrays.copyOf(this.fullMarks, capacity);
+        }
+        this.openedSites[this.openSites] = site;
+        this.wMarks[this.openSites] = this.wUnionFind.mark();
+        this.fullMarks[this.openSites] = this.fullUnionFind.mark();
+        this.openSites++;
+    }
+
+    // union two open sites in both the percolation and the fullness union-find
+    private void connect(int p, int q) {
+        this.wUnionFind.union(p, q);
+        this.fullUnionFind.union(p, q);
+    }
+
+    // remember the current configuration; pass the result to rollback() to return to it
+    public int checkpoint() {
+        return this.openSites;
+    }
+
+    // block again every site opened since the given checkpoint
+    public void rollback(int checkpoint) {
+        if (checkpoint < 0 || checkpoint > this.openSites) {
+            throw new IllegalArgumentException();
+        }
+        if (checkpoint == this.openSites) return;
+        for (int i = this.openSites - 1; i >= checkpoint; i--) {
+            this.sites.set(this.openedSites[i], SiteStore.BLOCKED);
+        }
+        this.wUnionFind.rollback(this.wMarks[checkpoint]);
+        this.fullUnionFind.rollback(this.fullMarks[checkpoint]);
+        this.openSites = checkpoint;
+    }
+
+    // would the system percolate if the sites (rows[i], cols[i]) were also opened?
+    // the grid is left exactly as it was
+    public boolean percolatesWith(int[] rows, int[] cols) {
+        if (rows == null || cols == null || rows.length != cols.length) {
+            throw new IllegalArgumentException();
+        }
+        int checkpoint = checkpoint();
+        try {
+            for (int i = 0; i < rows.length; i++) {
+                open(rows[i], cols[i]);
+            }
+            return percolates();
+        } finally {
+            rollback(checkpoint);
+        }
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+        return this.sites.get((row - 1) * this.n + (col - 1)) != SiteStore.BLOCKED;
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException();
+        }
+        int site = (row - 1) * this.n + (col - 1);
+        return this.sites.get(site) != SiteStore.BLOCKED
+                && this.fullUnionFind.find(site + 1) == this.fullUnionFind.find(this.topVirtualSiteNum);
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return this.openSites;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return this.wUnionFind.find(this.topVirtualSiteNum) == this.wUnionFind.find(this.bottomVirtualSiteNum);
+    }
+
+    // test client: a column opened tentatively percolates, and is then taken back
+    public static void main(String[] args) {
+        RollbackPercolation percolation = new RollbackPercolation(5);
+        percolation.open(1, 1);
+        percolation.open(2, 1);
+
+        int[] rows = {3, 4, 5};
+        int[] cols = {1, 1, 1};
+        StdOut.println("Percolates with (3..5, 1)? " + percolation.percolatesWith(rows, cols));
+        StdOut.println("Percolates: " + percolation.percolates());
+        StdOut.println("Is (3, 1) open? " + percolation.isOpen(3, 1));
+        StdOut.println("Number of open sites: " + percolation.numberOfOpenSites());
+    }
+}
@@ -0,0 +1,70 @@
+package module2;
+
+import java.util.Arrays;
+
+/**
+ * Union-find that can undo its most recent unions. It links by rank and never
+ * compresses paths, so every union changes at most one parent link and one
+ * rank; those changes go on an undo log, and rolling back to an earlier mark
+ * replays the log backwards. Finds cost O(log n). Arguments are not
+ * validated; callers are trusted to stay in range.
+ */
+final class RollbackUnionFind implements UnionFind {
+    private final int[] parent;
+    private final byte[] rank;
+    private int[] log = new int[16]; // linked roots, negated (minus one) when the new root's rank grew
+    private int logSize;
+
+    // creates n singleton sets 0 through n - 1
+    RollbackUnionFind(int n) {
+        this.parent = new int[n];
+        this.rank = new byte[n];
+        for (int i = 0; i < n; i++) {
+            this.parent[i] = i;
+        }
+    }
+
+    public int find(int p) {
+        while (p != this.parent[p]) {
+            p = this.parent[p];
+        }
+        return p;
+    }
+
+    public void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // link the shorter tree below the taller one
+        if (this.rank[rootP] > this.rank[rootQ]) {
+            int swap = rootP;
+            rootP = rootQ;
+            rootQ = swap;
+        }
+        this.parent[rootP] = rootQ;
+        boolean grew = this.rank[rootP] == this.rank[rootQ];
+        if (grew) this.rank[rootQ]++;
+
+        if (this.logSize == this.log.length) {
+            this.log = Arrays.copyOf(this.log, 2 * this.log.length);
+        }
+        this.log[this.logSize++] = grew ? -rootP - 1 : rootP;
+    }
+
+    // the current position of the undo log
+    int mark() {
+        return this.logSize;
+    }
+
+    // undo every union made since the given mark
+    void rollback(int mark) {
+        while (this.logSize > mark) {
+            int entry = this.log[--this.logSize];
+            int root = entry < 0 ? -entry - 1 : entry;
+            int newRoot = this.parent[root];
+            this.parent[root] = root;
+            if (entry < 0) this.rank[newRoot]--;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package module2;
+
+/**
+ * Streaming mean and variance of a sequence of samples (Welford's method).
+ * Two accumulators over disjoint samples can be merged (Chan et al.), so
+ * partial results computed apart can be combined without keeping the samples.
+ */
+final class RunningStats {
+    static final double CONFIDENCE_95 = 1.96;
+
+    private long count;
+    private double mean;
+    private double m2; // sum of squared deviations from the mean
+
+    // creates an accumulator with no samples
+    RunningStats() {
+    }
+
+    // creates an accumulator from a previously saved state
+    RunningStats(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    // add one sample
+    void add(double x) {
+        this.count++;
+        double delta = x - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (x - this.mean);
+    }
+
+    // add all samples seen by the other accumulator
+    void merge(RunningStats other) {
+        if (other.count == 0) return;
+        if (this.count == 0) {
+            this.count = other.count;
+            this.mean = other.mean;
+            this.m2 = other.m2;
+            return;
+        }
+        long count = this.count + other.count;
+        double delta = other.mean - this.mean;
+        this.mean += delta * other.count / count;
+        this.m2 += other.m2 + delta * delta * ((double) this.count * other.count / count);
+        this.count = count;
+    }
+
+    long count() {
+        return this.count;
+    }
+
+    double mean() {
+        return this.mean;
+    }
+
+    // sum of squared deviations from the mean, for saving the state
+    double m2() {
+        return this.m2;
+    }
+
+    // sample standard deviation (NaN with fewer than two samples)
+    double stddev() {
+        return Math.sqrt(this.m2 / (this.count - 1));
+    }
+
+    // half-width of the 95% confidence interval of the mean
+    double halfWidth95() {
+        return CONFIDENCE_95 * stddev() / Math.sqrt(this.count);
+    }
+}
@@ -0,0 +1,120 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes recorded site-opening sequences in a compact binary file:
+ * a 24-byte header (magic, version, grid size n, reserved, site count) and
+ * then one big-endian int per opened site, holding its 0-based row-major id
+ * (row - 1) * n + (col - 1). Files are memory-mapped a chunk at a time, so a
+ * sequence of hundreds of millions of sites replays without being copied
+ * onto the heap.
+ */
+public final class SiteSequenceFile {
+    private static final int MAGIC = 0x50534551; // "PSEQ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int CHUNK_SITES = 1 << 26; // sites per mapping, 256 MB
+
+    private SiteSequenceFile() {
+    }
+
+    // creates a grid from the file's header and opens the recorded sites in order
+    public static Percolation load(Path path) throws IOException {
+        return load(path, UnionFindKind.FAST, false);
+    }
+
+    // creates a grid with the given backing from the file's header and opens the recorded sites
+    public static Percolation load(Path path, UnionFindKind unionFindKind, boolean offHeap) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int n = readHeader(channel);
+            Percolation percolation = new Percolation(n, unionFindKind, offHeap);
+            replay(channel, percolation);
+            return percolation;
+        }
+    }
+
+    // opens the recorded sites in order on an existing grid of the same size
+    public static void replay(Path path, Percolation percolation) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (readHeader(channel) != percolation.gridSize()) {
+                throw new IllegalArgumentException("grid size does not match " + path);
+            }
+            replay(channel, percolation);
+        }
+    }
+
+    // writes the given 0-based row-major site ids for an n-by-n grid
+    public static void write(Path path, int n, int[] siteIds) throws IOException {
+        if (n <= 0 || siteIds == null) {
+            throw new IllegalArgumentException();
+        }
+        long size = (long) n * n;
+        for (int site : siteIds) {
+            if (site < 0 || site >= size) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(siteIds.length).flip();
+            channel.write(header, 0);
+            for (int from = 0; from < siteIds.length; from += CHUNK_SITES) {
+                int count = Math.min(CHUNK_SITES, siteIds.length - from);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_BYTES + (long) from * Integer.BYTES, (long) count * Integer.BYTES);
+                chunk.asIntBuffer().put(siteIds, from, count);
+                chunk.force();
+            }
+        }
+    }
+
+    // validates the header and returns the grid size n
+    private static int readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("truncated site sequence header");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("not a version " + VERSION + " site sequence file");
+        }
+        int n = header.getInt();
+        header.getInt(); // reserved
+        long count = header.getLong();
+        if (n <= 0 || count < 0 || channel.size() != HEADER_BYTES + count * Integer.BYTES) {
+            throw new IOException("corrupt site sequence header");
+        }
+        return n;
+    }
+
+    private static void replay(FileChannel channel, Percolation percolation) throws IOException {
+        long count = (channel.size() - HEADER_BYTES) / Integer.BYTES;
+        for (long from = 0; from < count; from += CHUNK_SITES) {
+            long sites = Math.min(CHUNK_SITES, count - from);
+            IntBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + from * Integer.BYTES, sites * Integer.BYTES).asIntBuffer();
+            percolation.openAll(chunk);
+        }
+    }
+
+    // test client: replays the given file and reports the resulting grid
+    public static void main(String[] args) throws IOException {
+        Percolation percolation = load(Paths.get(args[0]));
+        StdOut.println("Number of open sites: " + percolation.numberOfOpenSites());
+        StdOut.println("Percolates: " + percolation.percolates());
+    }
+}
@@ -0,0 +1,117 @@
+package module2;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Compact state storage for the sites of an n-by-n grid. Sites are addressed
+ * by a flat, 0-based, row-major index and take one bit each, packed 64 to a
+ * long word, either in a heap array or in a direct (off-heap) buffer. Whether
+ * an open site is full is a connectivity question, so it is not stored here.
+ */
+abstract class SiteStore {
+    static final int BLOCKED = 0;
+    static final int OPEN = 1;
+
+    private static final int SITES_PER_WORD = 64;
+    private static final long STATE_MASK = 1L;
+
+    // return the state of the given site
+    abstract int get(int site);
+
+    // set the state of the given site
+    abstract void set(int site, int state);
+
+    // number of long words backing the store
+    abstract int wordCount();
+
+    // raw packed word w, for snapshots
+    abstract long word(int w);
+
+    // overwrite raw packed word w, when restoring a snapshot
+    abstract void setWord(int w, long word);
+
+    // number of long words needed to hold the given number of sites
+    static int words(long sites) {
+        long words = (sites + SITES_PER_WORD - 1) / SITES_PER_WORD;
+        if (words > Integer.MAX_VALUE / Long.BYTES) {
+            throw new IllegalArgumentException();
+        }
+        return (int) words;
+    }
+
+    // creates a store for the given number of sites, all initially blocked
+    static SiteStore create(int sites, boolean offHeap) {
+        return offHeap ? new DirectSiteStore(sites) : new HeapSiteStore(sites);
+    }
+
+    private static int shift(int site) {
+        return site & (SITES_PER_WORD - 1);
+    }
+
+    private static long with(long word, int site, int state) {
+        int shift = shift(site);
+        return (word & ~(STATE_MASK << shift)) | ((long) state << shift);
+    }
+
+    private static final class HeapSiteStore extends SiteStore {
+        private final long[] words;
+
+        HeapSiteStore(int sites) {
+            this.words = new long[words(sites)]; // zeroed, i.e. all blocked
+        }
+
+        int get(int site) {
+            return (int) (this.words[site >>> 6] >>> shift(site) & STATE_MASK);
+        }
+
+        void set(int site, int state) {
+            int w = site >>> 6;
+            this.words[w] = with(this.words[w], site, state);
+        }
+
+        int wordCount() {
+            return this.words.length;
+        }
+
+        long word(int w) {
+            return this.words[w];
+        }
+
+        void setWord(int w, long word) {
+            this.words[w] = word;
+        }
+    }
+
+    private static final class DirectSiteStore extends SiteStore {
+        private final LongBuffer words;
+
+        DirectSiteStore(int sites) {
+            this.words = ByteBuffer.allocateDirect(words(sites) * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer(); // zeroed, i.e. all blocked
+        }
+
+        int get(int site) {
+            return (int) (this.words.get(site >>> 6) >>> shift(site) & STATE_MASK);
+        }
+
+        void set(int site, int state) {
+            int w = site >>> 6;
+            this.words.put(w, with(this.words.get(w), site, state));
+        }
+
+        int wordCount() {
+            return this.words.capacity();
+        }
+
+        long word(int w) {
+            return this.words.get(w);
+        }
+
+        void setWord(int w, long word) {
+            this.words.put(w, word);
+        }
+    }
+}
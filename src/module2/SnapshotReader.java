@@ -0,0 +1,75 @@
+package module2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential binary input from a FileChannel through one reusable direct
+ * buffer; the counterpart of {@link SnapshotWriter}.
+ */
+final class SnapshotReader {
+    private static final int BUFFER_BYTES = 1 << 23;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).flip();
+
+    SnapshotReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    byte getByte() throws IOException {
+        return ensure(Byte.BYTES).get();
+    }
+
+    int getInt() throws IOException {
+        return ensure(Integer.BYTES).getInt();
+    }
+
+    long getLong() throws IOException {
+        return ensure(Long.BYTES).getLong();
+    }
+
+    double getDouble() throws IOException {
+        return ensure(Double.BYTES).getDouble();
+    }
+
+    void getInts(int[] values) throws IOException {
+        for (int from = 0; from < values.length; ) {
+            int count = Math.min(values.length - from, ensure(Integer.BYTES).remaining() / Integer.BYTES);
+            this.buffer.asIntBuffer().get(values, from, count);
+            this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+            from += count;
+        }
+    }
+
+    void getBytes(byte[] values) throws IOException {
+        for (int from = 0; from < values.length; ) {
+            int count = Math.min(values.length - from, ensure(Byte.BYTES).remaining());
+            this.buffer.get(values, from, count);
+            from += count;
+        }
+    }
+
+    // number of bytes left to read
+    long remaining() throws IOException {
+        return this.buffer.remaining() + this.channel.size() - this.channel.position();
+    }
+
+    // is everything in the channel consumed?
+    boolean atEnd() throws IOException {
+        return !this.buffer.hasRemaining() && this.channel.position() == this.channel.size();
+    }
+
+    private ByteBuffer ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() >= bytes) return this.buffer;
+        this.buffer.compact();
+        while (this.buffer.position() < bytes) {
+            if (this.channel.read(this.buffer) < 0) {
+                throw new EOFException("truncated snapshot");
+            }
+        }
+        return this.buffer.flip();
+    }
+}
@@ -0,0 +1,68 @@
+package module2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential binary output to a FileChannel through one reusable direct
+ * buffer, with bulk puts for the large primitive arrays of a snapshot.
+ * Values are big-endian.
+ */
+final class SnapshotWriter {
+    private static final int BUFFER_BYTES = 1 << 23;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    SnapshotWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    void putByte(byte value) throws IOException {
+        ensure(Byte.BYTES).put(value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(Integer.BYTES).putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(Long.BYTES).putLong(value);
+    }
+
+    void putDouble(double value) throws IOException {
+        ensure(Double.BYTES).putDouble(value);
+    }
+
+    void putInts(int[] values) throws IOException {
+        for (int from = 0; from < values.length; ) {
+            int count = Math.min(values.length - from, ensure(Integer.BYTES).remaining() / Integer.BYTES);
+            this.buffer.asIntBuffer().put(values, from, count);
+            this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+            from += count;
+        }
+    }
+
+    void putBytes(byte[] values) throws IOException {
+        for (int from = 0; from < values.length; ) {
+            int count = Math.min(values.length - from, ensure(Byte.BYTES).remaining());
+            this.buffer.put(values, from, count);
+            from += count;
+        }
+    }
+
+    // write out everything buffered so far
+    void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    private ByteBuffer ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) flush();
+        return this.buffer;
+    }
+}
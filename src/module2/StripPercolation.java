@@ -0,0 +1,326 @@
+package module2;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Hoshen-Kopelman cluster analysis of a static n-by-n configuration that is
+ * streamed from disk one strip of rows at a time, so the grid may be far
+ * larger than the heap. Only the labels of the previous and current rows and
+ * a label table for the clusters crossing them are kept in memory; the table
+ * is compacted after every row and clusters that did not reach the current
+ * row are retired into the size histogram.
+ * <p>
+ * The file holds a 16-byte header (magic, version, n, reserved) and then n
+ * rows of ceil(n / 8) bytes each, where bit (col % 8) of byte (col / 8) is
+ * set when site (row, col) is open (both 0-based here).
+ */
+public class StripPercolation {
+    private static final int MAGIC = 0x50475244; // "PGRD"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int STRIP_BYTES = 1 << 24; // rows are read 16 MB at a time
+
+    private final int n;
+    private final boolean percolates;
+    private final long openSites;
+    private final long clusterCount;
+    private final long largestCluster;
+    private final SortedMap<Long, Long> clusterSizes = new TreeMap<>(); // size -> number of clusters
+
+    // per-row working state, only needed while the file is streamed
+    private int[] parent;     // label -> parent label, over the current label table
+    private long[] size;      // label -> cluster size, valid at roots
+    private boolean[] top;    // label -> cluster touches the top row, valid at roots
+    private int labels;       // labels in use in the current table
+    private long[] spareSize; // compaction targets, swapped with size and top
+    private boolean[] spareTop;
+    private int[] relabel;    // old label -> compacted label
+
+    // analyses the configuration stored in the given file
+    public StripPercolation(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.n = readHeader(channel);
+            int rowBytes = (this.n + 7) >>> 3;
+            int stripRows = Math.max(1, Math.min(this.n, STRIP_BYTES / rowBytes));
+            ByteBuffer strip = ByteBuffer.allocate(stripRows * rowBytes);
+
+            this.parent = new int[this.n + 2];
+            this.size = new long[this.n + 2];
+            this.top = new boolean[this.n + 2];
+            this.spareSize = new long[this.n + 2];
+            this.spareTop = new boolean[this.n + 2];
+            this.relabel = new int[this.n + 2];
+            int[] previous = new int[this.n];  // labels of the previous row, -1 where blocked
+            int[] current = new int[this.n];   // labels of the row being processed
+            int[] stamp = new int[this.n + 2]; // label -> last row that referenced it
+            Arrays.fill(previous, -1);
+            Arrays.fill(stamp, -1);
+
+            long open = 0;
+            long finished = 0;
+            long largest = 0;
+            long position = HEADER_BYTES;
+            for (int row = 0; row < this.n; row += stripRows) {
+                int rows = Math.min(stripRows, this.n - row);
+                strip.clear().limit(rows * rowBytes);
+                while (strip.hasRemaining()) {
+                    if (channel.read(strip, position + strip.position()) < 0) {
+                        throw new IOException("truncated percolation grid");
+                    }
+                }
+                position += (long) rows * rowBytes;
+
+                for (int r = 0; r < rows; r++) {
+                    open += labelRow(strip, r * rowBytes, row + r == 0, previous, current);
+
+                    // clusters of the previous row that no current site reaches are complete
+                    for (int col = 0; col < this.n; col++) {
+                        if (current[col] >= 0) stamp[find(current[col])] = row + r;
+                    }
+                    for (int label = 0; label < this.labels; label++) {
+                        if (this.parent[label] == label && stamp[label] != row + r) {
+                            record(this.size[label]);
+                            largest = Math.max(largest, this.size[label]);
+                            finished++;
+                        }
+                    }
+                    compact(current, stamp, row + r);
+
+                    int[] swap = previous;
+                    previous = current;
+                    current = swap;
+                }
+            }
+
+            // whatever reaches the bottom row is complete now too
+            boolean spans = false;
+            for (int label = 0; label < this.labels; label++) {
+                record(this.size[label]);
+                largest = Math.max(largest, this.size[label]);
+                finished++;
+                spans |= this.top[label];
+            }
+
+            this.percolates = spans;
+            this.openSites = open;
+            this.clusterCount = finished;
+            this.largestCluster = largest;
+            this.parent = null;
+            this.size = null;
+            this.top = null;
+            this.spareSize = null;
+            this.spareTop = null;
+            this.relabel = null;
+        }
+    }
+
+    // label one row against the previous row's labels and return its number of open sites
+    private int labelRow(ByteBuffer strip, int offset, boolean topRow, int[] previous, int[] current) {
+        int open = 0;
+        for (int col = 0; col < this.n; col++) {
+            if ((strip.get(offset + (col >>> 3)) & 1 << (col & 7)) == 0) {
+                current[col] = -1;
+                continue;
+            }
+            open++;
+            int left = col > 0 && current[col - 1] >= 0 ? find(current[col - 1]) : -1;
+            int up = previous[col] >= 0 ? find(previous[col]) : -1;
+            int label;
+            if (left < 0 && up < 0) {
+                label = this.labels++;
+                this.parent[label] = label;
+                this.size[label] = 0;
+                this.top[label] = topRow;
+            } else if (left < 0 || up < 0 || left == up) {
+                label = Math.max(left, up);
+            } else {
+                label = Math.min(left, up); // merge the two clusters under the smaller label
+                int other = Math.max(left, up);
+                this.parent[other] = label;
+                this.size[label] += this.size[other];
+                this.top[label] |= this.top[other];
+            }
+            this.size[label]++;
+            current[col] = label;
+        }
+        return open;
+    }
+
+    // renumber the clusters of the current row 0, 1, 2, ... and drop every other label
+    private void compact(int[] current, int[] stamp, int row) {
+        int[] relabel = this.relabel;
+        long[] size = this.spareSize;
+        boolean[] top = this.spareTop;
+        int labels = 0;
+        for (int label = 0; label < this.labels; label++) {
+            if (this.parent[label] == label && stamp[label] == row) {
+                relabel[label] = labels;
+                size[labels] = this.size[label];
+                top[labels] = this.top[label];
+                labels++;
+            }
+        }
+        for (int col = 0; col < this.n; col++) {
+            if (current[col] >= 0) current[col] = relabel[find(current[col])];
+        }
+        for (int label = 0; label < labels; label++) {
+            this.parent[label] = label;
+            stamp[label] = row;
+        }
+        for (int label = labels; label < this.labels; label++) {
+            stamp[label] = -1;
+        }
+        this.spareSize = this.size;
+        this.spareTop = this.top;
+        this.size = size;
+        this.top = top;
+        this.labels = labels;
+    }
+
+    private int find(int label) {
+        while (label != this.parent[label]) {
+            this.parent[label] = this.parent[this.parent[label]]; // path halving
+            label = this.parent[label];
+        }
+        return label;
+    }
+
+    private void record(long clusterSize) {
+        this.clusterSizes.merge(clusterSize, 1L, Long::sum);
+    }
+
+    // grid dimension n
+    public int gridSize() {
+        return this.n;
+    }
+
+    // does the configuration percolate?
+    public boolean percolates() {
+        return this.percolates;
+    }
+
+    // returns the number of open sites
+    public long numberOfOpenSites() {
+        return this.openSites;
+    }
+
+    // returns the number of clusters of open sites
+    public long numberOfClusters() {
+        return this.clusterCount;
+    }
+
+    // returns the number of sites in the largest cluster
+    public long largestCluster() {
+        return this.largestCluster;
+    }
+
+    // cluster size histogram: for each cluster size, the number of clusters of that size
+    public SortedMap<Long, Long> clusterSizes() {
+        return Collections.unmodifiableSortedMap(this.clusterSizes);
+    }
+
+    // writes the open/blocked state of the given grid
+    public static void write(Path path, Percolation percolation) throws IOException {
+        int n = percolation.gridSize();
+        write(path, n, (row, bits) -> {
+            for (int col = 0; col < n; col++) {
+                if (percolation.isOpen(row + 1, col + 1)) bits[col >>> 3] |= (byte) (1 << (col & 7));
+            }
+        });
+    }
+
+    // writes a random n-by-n configuration where each site is open with probability p,
+    // one row at a time, so the grid never has to fit in memory
+    public static void writeRandom(Path path, int n, double p, long seed) throws IOException {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException();
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        write(path, n, (row, bits) -> {
+            for (int col = 0; col < n; col++) {
+                if (random.nextDouble() < p) bits[col >>> 3] |= (byte) (1 << (col & 7));
+            }
+        });
+    }
+
+    // fills the open bits of one 0-based row into a zeroed array of ceil(n / 8) bytes
+    private interface RowWriter {
+        void fill(int row, byte[] bits);
+    }
+
+    private static void write(Path path, int n, RowWriter rows) throws IOException {
+        if (n <= 0) {
+            throw new IllegalArgumentException();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            int rowBytes = (n + 7) >>> 3;
+            int stripRows = Math.max(1, Math.min(n, STRIP_BYTES / rowBytes));
+            ByteBuffer strip = ByteBuffer.allocate(stripRows * rowBytes);
+            byte[] bits = new byte[rowBytes];
+            for (int row = 0; row < n; row++) {
+                Arrays.fill(bits, (byte) 0);
+                rows.fill(row, bits);
+                strip.put(bits);
+                if (!strip.hasRemaining() || row == n - 1) {
+                    strip.flip();
+                    while (strip.hasRemaining()) {
+                        channel.write(strip);
+                    }
+                    strip.clear();
+                }
+            }
+        }
+    }
+
+    // validates the header and returns the grid size n
+    private static int readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("truncated percolation grid header");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("not a version " + VERSION + " percolation grid file");
+        }
+        int n = header.getInt();
+        if (n <= 0 || channel.size() != HEADER_BYTES + (long) n * ((n + 7) >>> 3)) {
+            throw new IOException("corrupt percolation grid header");
+        }
+        return n;
+    }
+
+    // test client: writes a random n-by-n grid with site probability p and analyses it
+    public static void main(String[] args) throws IOException {
+        Path path = Paths.get(args[0]);
+        int n = Integer.parseInt(args[1]);
+        double p = Double.parseDouble(args[2]);
+
+        writeRandom(path, n, p, new SplittableRandom().nextLong());
+        StripPercolation strips = new StripPercolation(path);
+        StdOut.println("Percolates: " + strips.percolates());
+        StdOut.println("Number of open sites: " + strips.numberOfOpenSites());
+        StdOut.println("Number of clusters: " + strips.numberOfClusters());
+        StdOut.println("Largest cluster: " + strips.largestCluster());
+    }
+}
@@ -0,0 +1,12 @@
+package module2;
+
+/**
+ * How a percolation trial picks the next site to open.
+ */
+public enum TrialMode {
+    // draw (row, col) uniformly at random, including sites that are already open
+    RANDOM_SITES,
+
+    // open every site at most once, in the order of a random permutation of the grid
+    SHUFFLED_SITES
+}
@@ -0,0 +1,14 @@
+package module2;
+
+/**
+ * The union-find operations the percolation code relies on. Elements are
+ * the integers 0 through n - 1; callers are trusted to stay in range.
+ */
+interface UnionFind {
+
+    // return the canonical element of the set containing p
+    int find(int p);
+
+    // merge the set containing p with the set containing q
+    void union(int p, int q);
+}
@@ -0,0 +1,36 @@
+package module2;
+
+import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+
+/**
+ * The union-find implementations a {@link Percolation} can be built on.
+ */
+public enum UnionFindKind {
+    // package-private array-based engine with path halving (the default)
+    FAST {
+        UnionFind create(int n) {
+            return new FastUnionFind(n);
+        }
+    },
+
+    // the algs4 WeightedQuickUnionUF, kept as a baseline for comparison
+    ALGS4 {
+        UnionFind create(int n) {
+            WeightedQuickUnionUF uf = new WeightedQuickUnionUF(n);
+            return new UnionFind() {
+                // finds are not recorded: the depth is not visible, and a depth of 0 would skew the metrics
+                public int find(int p) {
+                    return uf.find(p);
+                }
+
+                public void union(int p, int q) {
+                    if (PercolationMetrics.ENABLED) PercolationMetrics.recordUnion();
+                    uf.union(p, q);
+                }
+            };
+        }
+    };
+
+    // creates n singleton sets 0 through n - 1
+    abstract UnionFind create(int n);
+}
@@ -0,0 +1,253 @@
+package module3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * A randomized queue that many threads may use at once. Items are spread
+ * over independently locked stripes, each a resizing array like
+ * RandomizedQueue's. A thread enqueues into its own home stripe, moving on to
+ * the next one if that is locked. A dequeue picks a stripe with probability
+ * proportional to its size and then an item of it uniformly at random, so
+ * every item is about equally likely; if the chosen stripe has been emptied
+ * meanwhile, it steals from the first non-empty stripe it finds instead.
+ * @param <Item> item to be stored in the queue
+ */
+public class ConcurrentRandomizedQueue<Item> implements Iterable<Item> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        Object[] items = new Object[INITIAL_CAPACITY];
+        volatile int size = 0; // written under the lock, read without it
+
+        void add(Object item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * items.length);
+            }
+            items[size] = item;
+            size = size + 1;
+        }
+
+        // swap a random item with the last one and remove it
+        Object removeRandom(ThreadLocalRandom random) {
+            int index = random.nextInt(size);
+            Object item = items[index];
+            int last = size - 1;
+            items[index] = items[last];
+            items[last] = null;
+            size = last;
+            if (last > 0 && last == items.length / 4 && items.length > INITIAL_CAPACITY) {
+                items = Arrays.copyOf(items, items.length / 2);
+            }
+            return item;
+        }
+    }
+
+    // construct an empty queue with a stripe per available processor
+    public ConcurrentRandomizedQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // construct an empty queue with at least the given number of stripes
+    public ConcurrentRandomizedQueue(int stripes) {
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException();
+        }
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) count <<= 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+    }
+
+    // is the queue empty? only a snapshot while other threads are active
+    public boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size > 0) return false;
+        }
+        return true;
+    }
+
+    // return the number of items on the queue; only a snapshot while other threads are active
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    // add the item to the calling thread's stripe, or to the next free one if that is busy
+    public void enqueue(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        int home = homeStripe();
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(home + i) & mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.add(item);
+                    return;
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        Stripe stripe = stripes[home];
+        stripe.lock.lock();
+        try {
+            stripe.add(item);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // remove and return a random item
+    public Item dequeue() {
+        return take(true);
+    }
+
+    // return a random item (but do not remove it)
+    public Item sample() {
+        return take(false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Item take(boolean remove) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int chosen = weightedStripe(random);
+        if (chosen >= 0) {
+            Object item = takeFrom(stripes[chosen], remove, random);
+            if (item != null) return (Item) item;
+        }
+
+        // the chosen stripe ran dry in the meantime: steal from any stripe that has items
+        int start = random.nextInt(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            Object item = takeFrom(stripes[(start + i) & mask], remove, random);
+            if (item != null) return (Item) item;
+        }
+        throw new NoSuchElementException();
+    }
+
+    // a stripe chosen with probability proportional to its size, or -1 if all looked empty
+    private int weightedStripe(ThreadLocalRandom random) {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.size;
+        }
+        if (total == 0) return -1;
+        long target = random.nextLong(total);
+        for (int i = 0; i < stripes.length; i++) {
+            int size = stripes[i].size;
+            if (target < size) return i;
+            target -= size;
+        }
+        return -1; // stripes shrank while we looked; the caller falls back to stealing
+    }
+
+    // a random item of the stripe, or null if it is empty
+    private static Object takeFrom(Stripe stripe, boolean remove, ThreadLocalRandom random) {
+        if (stripe.size == 0) return null;
+        stripe.lock.lock();
+        try {
+            if (stripe.size == 0) return null;
+            return remove ? stripe.removeRandom(random) : stripe.items[random.nextInt(stripe.size)];
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // the stripe this thread enqueues into, from a mix of its id
+    private int homeStripe() {
+        long id = Thread.currentThread().getId();
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // return an iterator over a snapshot of the items in random order; the stripes are
+    // copied one at a time, so items enqueued or dequeued meanwhile may or may not appear
+    @SuppressWarnings("unchecked")
+    public Iterator<Item> iterator() {
+        List<Item> snapshot = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (int i = 0; i < stripe.size; i++) {
+                    snapshot.add((Item) stripe.items[i]);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        Collections.shuffle(snapshot, ThreadLocalRandom.current());
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    // unit testing: producers and consumers share one queue, and every item is taken once
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int perProducer = args.length > 2 ? Integer.parseInt(args[2]) : 250_000;
+
+        ConcurrentRandomizedQueue<Integer> queue = new ConcurrentRandomizedQueue<>();
+        int total = producers * perProducer;
+        boolean[] taken = new boolean[total];
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    queue.enqueue(i);
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                while (consumed.get() < total) {
+                    try {
+                        int item = queue.dequeue();
+                        synchronized (taken) {
+                            if (taken[item]) duplicates.incrementAndGet();
+                            taken[item] = true;
+                        }
+                        consumed.incrementAndGet();
+                    } catch (NoSuchElementException e) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        StdOut.println("Items: " + total + ", consumed: " + consumed.get() + ", duplicates: " + duplicates.get());
+        StdOut.println("Size: " + queue.size());
+        StdOut.println("elapsed time = " + elapsed + "s");
+    }
+}
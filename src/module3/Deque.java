@@ -1,23 +1,40 @@
 package module3;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import edu.princeton.cs.algs4.StdOut;
 
 /**
  * A deque is a generalization of a stack and a queue that supports adding
  * and removing items from either the front or the back of the data structure.
+ * Items are kept in a doubly linked chain of fixed-size array blocks, so all
+ * four end operations are O(1) and allocate only when a block fills up; the
+ * most recently emptied block is kept as a spare, so a deque that keeps
+ * crossing the same block boundary does not allocate at all.
  * @param <Item> item to be stored in the deque
  */
 public class Deque<Item> implements Iterable<Item> {
 
-    private Node first = null;
-    private Node last = null;
+    private static final int BLOCK_SIZE = 64;
+
+    private Block first = new Block(); // block holding the front item
+    private Block last = first;        // block holding the back item
+    private int firstIndex = BLOCK_SIZE / 2;   // index of the front item in first
+    private int lastIndex = firstIndex - 1;    // index of the back item in last
+    private Block spare = null;
     private int count = 0;
 
-    private class Node {
-        Item item;
-        Node next;
+    private static class Block {
+        final Object[] items = new Object[BLOCK_SIZE];
+        Block prev;
+        Block next;
     }
 
     // construct an empty deque
@@ -26,7 +43,7 @@ public class Deque<Item> implements Iterable<Item> {
 
     // is the deque empty?
     public boolean isEmpty() {
-        return first == null || last == null;
+        return count == 0;
     }
 
     // return the number of items on the deque
@@ -39,13 +56,10 @@ public class Deque<Item> implements Iterable<Item> {
         if (item == null) {
             throw new IllegalArgumentException();
         }
-        Node oldFirst = first;
-        first = new Node();
-        first.item = item;
-        first.next = oldFirst;
-        if (isEmpty()) {
-            last = first;
+        if (firstIndex == 0) {
+            prependBlock();
         }
+        first.items[--firstIndex] = item;
         count++;
     }
 
@@ -54,31 +68,99 @@ public class Deque<Item> implements Iterable<Item> {
         if (item == null) {
             throw new IllegalArgumentException();
         }
-        Node oldLast = last;
-        last = new Node();
-        last.item = item;
-        last.next = null;
-        if (isEmpty()) {
-            first = last;
-        } else {
-            oldLast.next = last;
+        if (lastIndex == BLOCK_SIZE - 1) {
+            appendBlock();
         }
+        last.items[++lastIndex] = item;
         count++;
     }
 
+    // add the items to the front, keeping their order, so items[0] becomes the front item
+    public void addAllFirst(Item[] items) {
+        prependAll(checkItems(items));
+    }
+
+    // add the items to the front, keeping the collection's iteration order
+    public void addAllFirst(Collection<? extends Item> items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+        prependAll(checkItems(items.toArray()));
+    }
+
+    // add the items to the back, in order
+    public void addAllLast(Item[] items) {
+        appendAll(checkItems(items));
+    }
+
+    // add the items to the back, in the collection's iteration order
+    public void addAllLast(Collection<? extends Item> items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+        appendAll(checkItems(items.toArray()));
+    }
+
+    // reject the whole batch before adding any of it
+    private static Object[] checkItems(Object[] items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+        for (Object item : items) {
+            if (item == null) {
+                throw new IllegalArgumentException();
+            }
+        }
+        return items;
+    }
+
+    // copy the items into the free slots in front of the first item, a block at a time
+    private void prependAll(Object[] items) {
+        int to = items.length;
+        while (to > 0) {
+            if (firstIndex == 0) {
+                prependBlock();
+            }
+            int n = Math.min(to, firstIndex);
+            System.arraycopy(items, to - n, first.items, firstIndex - n, n);
+            firstIndex -= n;
+            count += n;
+            to -= n;
+        }
+    }
+
+    // copy the items into the free slots behind the last item, a block at a time
+    private void appendAll(Object[] items) {
+        int from = 0;
+        while (from < items.length) {
+            if (lastIndex == BLOCK_SIZE - 1) {
+                appendBlock();
+            }
+            int n = Math.min(items.length - from, BLOCK_SIZE - 1 - lastIndex);
+            System.arraycopy(items, from, last.items, lastIndex + 1, n);
+            lastIndex += n;
+            count += n;
+            from += n;
+        }
+    }
+
     // remove and return the item from the front
     public Item removeFirst() {
         if (isEmpty()) {
             throw new NoSuchElementException();
         }
-        Item item = first.item;
-        if (first == last) {
-            first = null;
-            last = null;
-        } else {
+        Item item = item(first, firstIndex);
+        first.items[firstIndex++] = null;
+        count--;
+        if (count == 0) {
+            recenter();
+        } else if (firstIndex == BLOCK_SIZE) {
+            Block empty = first;
             first = first.next;
+            first.prev = null;
+            firstIndex = 0;
+            release(empty);
         }
-        count--;
         return item;
     }
 
@@ -87,22 +169,98 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty()) {
             throw new NoSuchElementException();
         }
-        Item item = last.item;
-        if (first == last) {
-            first = null;
-            last = null;
-        } else {
-            Node current = first;
-            while (current.next != last) {
-                current = current.next;
-            }
-            current.next = null;
-            last = current;
-        }
+        Item item = item(last, lastIndex);
+        last.items[lastIndex--] = null;
         count--;
+        if (count == 0) {
+            recenter();
+        } else if (lastIndex < 0) {
+            Block empty = last;
+            last = last.prev;
+            last.next = null;
+            lastIndex = BLOCK_SIZE - 1;
+            release(empty);
+        }
         return item;
     }
 
+    // remove up to max items from the front, handing each to the action in order;
+    // returns the number of items removed
+    public int drainTo(Consumer<? super Item> action, int max) {
+        if (action == null || max < 0) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        while (drained < max && count > 0) {
+            int end = firstIndex + Math.min(max - drained, Math.min(count, BLOCK_SIZE - firstIndex));
+            Object[] items = first.items;
+            try {
+                while (firstIndex < end) {
+                    Item item = item(first, firstIndex);
+                    items[firstIndex++] = null;
+                    count--;
+                    drained++;
+                    action.accept(item);
+                }
+            } finally {
+                // also leaves the deque consistent if the action throws
+                if (count == 0) {
+                    recenter();
+                } else if (firstIndex == BLOCK_SIZE) {
+                    Block empty = first;
+                    first = first.next;
+                    first.prev = null;
+                    firstIndex = 0;
+                    release(empty);
+                }
+            }
+        }
+        return drained;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Item item(Block block, int index) {
+        return (Item) block.items[index];
+    }
+
+    // an empty deque starts over in the middle of its only block, so it can grow either way
+    private void recenter() {
+        firstIndex = BLOCK_SIZE / 2;
+        lastIndex = firstIndex - 1;
+    }
+
+    private void prependBlock() {
+        Block block = newBlock();
+        block.next = first;
+        first.prev = block;
+        first = block;
+        firstIndex = BLOCK_SIZE;
+    }
+
+    private void appendBlock() {
+        Block block = newBlock();
+        block.prev = last;
+        last.next = block;
+        last = block;
+        lastIndex = -1;
+    }
+
+    private Block newBlock() {
+        if (spare == null) {
+            return new Block();
+        }
+        Block block = spare;
+        spare = null;
+        return block;
+    }
+
+    // keep an emptied block for reuse; its items are already cleared
+    private void release(Block block) {
+        block.prev = null;
+        block.next = null;
+        spare = block;
+    }
+
     // return an iterator over items in order from front to back
     public Iterator<Item> iterator() {
         return new DequeIterator();
@@ -110,8 +268,10 @@ public class Deque<Item> implements Iterable<Item> {
 
     private class DequeIterator implements Iterator<Item>
     {
-        private Node current = first;
-        public boolean hasNext() { return current != null; }
+        private Block block = first;
+        private int index = firstIndex;
+        private int remaining = count;
+        public boolean hasNext() { return remaining > 0; }
         public void remove() {
             throw new UnsupportedOperationException();
         }
@@ -120,9 +280,93 @@ public class Deque<Item> implements Iterable<Item> {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            Item item = current.item;
-            current = current.next;
-            return item;
+            if (index == BLOCK_SIZE) {
+                block = block.next;
+                index = 0;
+            }
+            remaining--;
+            return item(block, index++);
+        }
+    }
+
+    // return a spliterator over items in order from front to back, which splits along blocks
+    public Spliterator<Item> spliterator() {
+        return new DequeSpliterator(first, firstIndex, count);
+    }
+
+    // return a sequential stream over items in order from front to back; call parallel() to split it
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    private class DequeSpliterator implements Spliterator<Item>
+    {
+        private Block block;
+        private int index; // may be BLOCK_SIZE, meaning the start of the next block
+        private int remaining;
+
+        DequeSpliterator(Block block, int index, int remaining) {
+            this.block = block;
+            this.index = index;
+            this.remaining = remaining;
+        }
+
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (remaining == 0) {
+                return false;
+            }
+            if (index == BLOCK_SIZE) {
+                block = block.next;
+                index = 0;
+            }
+            remaining--;
+            action.accept(item(block, index++));
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Item> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            while (remaining > 0) {
+                if (index == BLOCK_SIZE) {
+                    block = block.next;
+                    index = 0;
+                }
+                int end = Math.min(BLOCK_SIZE, index + remaining);
+                remaining -= end - index;
+                while (index < end) {
+                    action.accept(item(block, index++));
+                }
+            }
+        }
+
+        // hand off the first half, skipping this one ahead over whole blocks
+        public Spliterator<Item> trySplit() {
+            if (remaining <= BLOCK_SIZE) {
+                return null;
+            }
+            int half = remaining >>> 1;
+            DequeSpliterator prefix = new DequeSpliterator(block, index, half);
+            int position = index + half;
+            while (position > BLOCK_SIZE) {
+                block = block.next;
+                position -= BLOCK_SIZE;
+            }
+            index = position;
+            remaining -= half;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
         }
     }
 
@@ -170,6 +414,15 @@ public class Deque<Item> implements Iterable<Item> {
         for (String str : deque) {
             StdOut.print(str + " ");
         }
+        StdOut.println();
+
+        deque.addAllFirst(new String[] {"-1", "0"});
+        deque.addAllLast(Arrays.asList("4", "5"));
+        StdOut.println("Stream: " + deque.stream().collect(Collectors.joining(" ")));
+        StdOut.print("Drained: ");
+        deque.drainTo(str -> StdOut.print(str + " "), 3);
+        StdOut.println();
+        StdOut.println("Size: " + deque.size());
     }
 
 }
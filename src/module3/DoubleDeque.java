@@ -0,0 +1,207 @@
+package module3;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleConsumer;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * A deque of double values, laid out like Deque: a doubly linked chain of
+ * fixed-size double[] blocks with one spare block kept for reuse. Values are
+ * stored unboxed, so adding and removing never allocates except when a
+ * block fills up. It is deliberately not an Iterable, whose boxing
+ * forEach would make forEach(value -> ...) ambiguous.
+ */
+public class DoubleDeque {
+
+    private static final int BLOCK_SIZE = 256;
+
+    private Block first = new Block(); // block holding the front value
+    private Block last = first;        // block holding the back value
+    private int firstIndex = BLOCK_SIZE / 2;   // index of the front value in first
+    private int lastIndex = firstIndex - 1;    // index of the back value in last
+    private Block spare = null;
+    private int count = 0;
+
+    private static class Block {
+        final double[] values = new double[BLOCK_SIZE];
+        Block prev;
+        Block next;
+    }
+
+    // construct an empty deque
+    public DoubleDeque() {
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // return the number of values on the deque
+    public int size() {
+        return count;
+    }
+
+    // add the value to the front
+    public void addFirst(double value) {
+        if (firstIndex == 0) {
+            Block block = newBlock();
+            block.next = first;
+            first.prev = block;
+            first = block;
+            firstIndex = BLOCK_SIZE;
+        }
+        first.values[--firstIndex] = value;
+        count++;
+    }
+
+    // add the value to the back
+    public void addLast(double value) {
+        if (lastIndex == BLOCK_SIZE - 1) {
+            Block block = newBlock();
+            block.prev = last;
+            last.next = block;
+            last = block;
+            lastIndex = -1;
+        }
+        last.values[++lastIndex] = value;
+        count++;
+    }
+
+    // remove and return the value from the front
+    public double removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        double value = first.values[firstIndex++];
+        count--;
+        if (count == 0) {
+            recenter();
+        } else if (firstIndex == BLOCK_SIZE) {
+            Block empty = first;
+            first = first.next;
+            first.prev = null;
+            firstIndex = 0;
+            release(empty);
+        }
+        return value;
+    }
+
+    // remove and return the value from the back
+    public double removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        double value = last.values[lastIndex--];
+        count--;
+        if (count == 0) {
+            recenter();
+        } else if (lastIndex < 0) {
+            Block empty = last;
+            last = last.prev;
+            last.next = null;
+            lastIndex = BLOCK_SIZE - 1;
+            release(empty);
+        }
+        return value;
+    }
+
+    // an empty deque starts over in the middle of its only block, so it can grow either way
+    private void recenter() {
+        firstIndex = BLOCK_SIZE / 2;
+        lastIndex = firstIndex - 1;
+    }
+
+    private Block newBlock() {
+        if (spare == null) {
+            return new Block();
+        }
+        Block block = spare;
+        spare = null;
+        return block;
+    }
+
+    private void release(Block block) {
+        block.prev = null;
+        block.next = null;
+        spare = block;
+    }
+
+    // perform the action on every value in order from front to back, without boxing
+    public void forEach(DoubleConsumer action) {
+        if (action == null) {
+            throw new IllegalArgumentException();
+        }
+        int remaining = count;
+        int index = firstIndex;
+        for (Block block = first; remaining > 0; block = block.next, index = 0) {
+            int end = Math.min(BLOCK_SIZE, index + remaining);
+            for (int i = index; i < end; i++) {
+                action.accept(block.values[i]);
+            }
+            remaining -= end - index;
+        }
+    }
+
+    // return an iterator over values in order from front to back; use nextDouble() to avoid boxing
+    public PrimitiveIterator.OfDouble iterator() {
+        return new DoubleDequeIterator();
+    }
+
+    private class DoubleDequeIterator implements PrimitiveIterator.OfDouble
+    {
+        private Block block = first;
+        private int index = firstIndex;
+        private int remaining = count;
+        public boolean hasNext() { return remaining > 0; }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+        public double nextDouble()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (index == BLOCK_SIZE) {
+                block = block.next;
+                index = 0;
+            }
+            remaining--;
+            return block.values[index++];
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        DoubleDeque deque = new DoubleDeque();
+
+        deque.addFirst(2);
+        deque.addFirst(1);
+        deque.addLast(3);
+        StdOut.println("Size: " + deque.size());
+
+        deque.forEach(value -> StdOut.print(value + " "));
+        StdOut.println();
+
+        StdOut.println(deque.removeFirst());
+        StdOut.println(deque.removeLast());
+        StdOut.println(deque.removeFirst());
+        StdOut.println("Size: " + deque.size());
+
+        try {
+            StdOut.println(deque.removeLast());
+        } catch (NoSuchElementException e) {
+            StdOut.println("Cannot remove last since deque is already empty");
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            deque.addLast(i);
+        }
+        double sum = 0;
+        for (PrimitiveIterator.OfDouble it = deque.iterator(); it.hasNext(); ) {
+            sum += it.nextDouble();
+        }
+        StdOut.println("Sum of 0..999: " + sum);
+    }
+}
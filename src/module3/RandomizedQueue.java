@@ -3,24 +3,34 @@ package module3;
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A randomized queue is similar to a stack or queue, except that the item
  * removed is chosen uniformly at random among items in the data structure.
+ * Items are kept in a resizing array; a removed item's slot is filled with
+ * the last item, so every operation is amortized O(1). The array doubles when
+ * full and halves when a quarter full, so alternating enqueues and dequeues
+ * at a boundary never resize on every call.
  * @param <Item> item to be stored in the queue
  */
 public class RandomizedQueue<Item> implements Iterable<Item> {
 
-    private Node first = null;
-    private Node last = null;
-    private int size = 0;
+    private static final int INITIAL_CAPACITY = 8;
 
-    private class Node {
-        Item item;
-        Node next;
-    }
+    private Item[] items = (Item[]) new Object[INITIAL_CAPACITY];
+    private int size = 0;
+    private int modifications = 0; // lets iterators detect changes to the queue
 
     // construct an empty randomized queue
     public RandomizedQueue() {
@@ -29,7 +39,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 
     // is the randomized queue empty?
     public boolean isEmpty() {
-        return first == null || last == null;
+        return size == 0;
     }
 
     // return the number of items on the randomized queue
@@ -42,16 +52,55 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         if (item == null) {
             throw new IllegalArgumentException();
         }
-        Node oldLast = last;
-        last = new Node();
-        last.item = item;
-        last.next = null;
-        if (isEmpty()) {
-            first = last;
-        } else {
-            oldLast.next = last;
+        if (size == items.length) {
+            resize(2 * items.length);
         }
-        size++;
+        items[size++] = item;
+        modifications++;
+    }
+
+    // add all the items; none is added if any of them is null
+    public void enqueueAll(Item[] items) {
+        appendAll(items);
+    }
+
+    // add all the items of the collection; none is added if any of them is null
+    public void enqueueAll(Collection<? extends Item> items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+        appendAll(items.toArray());
+    }
+
+    // reject the whole batch before adding any of it, then copy it in one go
+    private void appendAll(Object[] items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+        for (Object item : items) {
+            if (item == null) {
+                throw new IllegalArgumentException();
+            }
+        }
+        if (size + items.length > this.items.length) {
+            resize(Math.max(2 * this.items.length, size + items.length));
+        }
+        System.arraycopy(items, 0, this.items, size, items.length);
+        size += items.length;
+        modifications++;
+    }
+
+    // remove up to max random items, handing each to the action; returns the number removed
+    public int drainTo(Consumer<? super Item> action, int max) {
+        if (action == null || max < 0) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        while (drained < max && !isEmpty()) {
+            action.accept(dequeue());
+            drained++;
+        }
+        return drained;
     }
 
     // remove and return a random item
@@ -60,48 +109,28 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             throw new NoSuchElementException();
         }
 
-        Item item;
-        if (first == last) {
-            item = last.item;
-            first = null;
-            last = null;
-        } else {
-            int targetIndex = StdRandom.uniformInt(size) + 1;
-            int currIndex = 1;
-            Node current = first;
-            Node prev = null;
-            while (currIndex != targetIndex) {
-                currIndex++;
-                prev = current;
-                current = current.next;
-            }
-            item = current.item;
-            if (current == first) {
-                first = current.next;
-            } else if (current == last) {
-                prev.next = null;
-                last = prev;
-            } else {
-                prev.next = current.next;
-            }
+        int index = StdRandom.uniformInt(size);
+        Item item = items[index];
+        items[index] = items[--size];
+        items[size] = null;
+        modifications++;
+        if (size > 0 && size == items.length / 4 && items.length > INITIAL_CAPACITY) {
+            resize(items.length / 2);
         }
-        size--;
         return item;
     }
 
+    // move the items into an array of the given capacity
+    private void resize(int capacity) {
+        items = Arrays.copyOf(items, capacity);
+    }
+
     // return a random item (but do not remove it)
     public Item sample() {
         if (isEmpty()) {
             throw new NoSuchElementException();
         }
-        int targetIndex = StdRandom.uniformInt(size) + 1;
-        int currIndex = 1;
-        Node current = first;
-        while (currIndex != targetIndex) {
-            currIndex++;
-            current = current.next;
-        }
-        return current.item;
+        return items[StdRandom.uniformInt(size)];
     }
 
     // return an independent iterator over items in random order
@@ -109,25 +138,35 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return new RandomizedQueueIterator();
     }
 
+    // return a spliterator over a shuffled snapshot of the items, which splits like an array
+    public Spliterator<Item> spliterator() {
+        return Spliterators.spliterator(shuffledItems(), Spliterator.SIZED | Spliterator.SUBSIZED
+                | Spliterator.NONNULL);
+    }
+
+    // return a sequential stream over the items in random order; call parallel() to split it
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    // copy the items into a new array in random order
+    private Object[] shuffledItems() {
+        Object[] shuffled = Arrays.copyOf(items, size, Object[].class);
+        StdRandom.shuffle(shuffled, 0, size);
+        return shuffled;
+    }
+
+    // Fisher-Yates shuffle of the indices 0 through size - 1, one swap per next(); only the
+    // positions a swap has disturbed are stored, so no copy of the items is ever made
     private class RandomizedQueueIterator implements Iterator<Item>
     {
-        private int remaining;
-        private final Item[] shuffledItems;
-
-        public RandomizedQueueIterator() {
-            shuffledItems = (Item[]) new Object[size];
-            Node current = first;
-            remaining = size;
-            int i = 0;
-            while (current != null) {
-                shuffledItems[i++] = current.item;
-                current = current.next;
-            }
-            StdRandom.shuffle(shuffledItems, 0, size);
-        }
+        private final int total = size;
+        private final int expectedModifications = modifications;
+        private final SwapMap swaps = new SwapMap();
+        private int position = 0;
 
         public boolean hasNext() {
-            return remaining > 0;
+            return position < total;
         }
 
         public void remove() {
@@ -135,10 +174,78 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
 
         public Item next() {
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return shuffledItems[--remaining];
+            int j = position + StdRandom.uniformInt(total - position);
+            int index = swaps.get(j, j);
+            if (j != position) {
+                swaps.put(j, swaps.get(position, position));
+            }
+            position++;
+            return items[index];
+        }
+    }
+
+    // int-to-int map with open addressing and linear probing; keys are array
+    // indices, so -1 marks an empty slot
+    private static class SwapMap {
+        private int[] keys = emptyKeys(16);
+        private int[] values = new int[16];
+        private int count = 0;
+
+        int get(int key, int absent) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return absent;
+        }
+
+        void put(int key, int value) {
+            if (2 * (count + 1) > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != -1 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == -1) {
+                keys[i] = key;
+                count++;
+            }
+            values[i] = value;
+        }
+
+        // keep the table at most half full
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = emptyKeys(2 * oldKeys.length);
+            values = new int[2 * oldKeys.length];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int[] emptyKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, -1);
+            return keys;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
         }
     }
 
@@ -172,5 +279,12 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         StdOut.println();
         StdOut.println("Size: " + randomizedQueue.size());
         assert (randomizedQueue.size() == 0);
+
+        randomizedQueue.enqueueAll(new String[] {"1", "2", "3", "4", "5"});
+        StdOut.println("Randomized stream: " + randomizedQueue.stream().collect(Collectors.joining(" ")));
+        StdOut.print("Randomized draining: ");
+        randomizedQueue.drainTo(str -> StdOut.print(str + " "), 3);
+        StdOut.println();
+        StdOut.println("Size: " + randomizedQueue.size());
     }
 }
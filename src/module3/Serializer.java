@@ -0,0 +1,59 @@
+package module3;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts items to and from bytes, for the segment files of a
+ * SpillingDeque. An item must occupy exactly sizeOf(item) bytes and read()
+ * must consume exactly the bytes write() produced.
+ * @param <Item> item to be converted
+ */
+public interface Serializer<Item> {
+
+    // number of bytes write() puts for the item
+    int sizeOf(Item item);
+
+    // write the item at the buffer's position
+    void write(Item item, ByteBuffer out);
+
+    // read one item, as written by write(), from the buffer's position
+    Item read(ByteBuffer in);
+
+    // strings as a length-prefixed UTF-8 encoding
+    static Serializer<String> strings() {
+        return new Serializer<String>() {
+            public int sizeOf(String item) {
+                return Integer.BYTES + item.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            public void write(String item, ByteBuffer out) {
+                byte[] bytes = item.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length).put(bytes);
+            }
+
+            public String read(ByteBuffer in) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    // integers as four big-endian bytes
+    static Serializer<Integer> integers() {
+        return new Serializer<Integer>() {
+            public int sizeOf(Integer item) {
+                return Integer.BYTES;
+            }
+
+            public void write(Integer item, ByteBuffer out) {
+                out.putInt(item);
+            }
+
+            public Integer read(ByteBuffer in) {
+                return in.getInt();
+            }
+        };
+    }
+}
@@ -0,0 +1,444 @@
+package module3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * A deque that may hold far more items than fit on the heap. The items near
+ * the front and the back are kept in two in-memory deques; once either holds
+ * more than two segments' worth, a segment of its innermost items is written
+ * through a Serializer to a memory-mapped segment file, and the segments are
+ * read back in one sequential pass when an end runs dry. Heap use is thus
+ * bounded by a few segments however long the deque grows.
+ * <p>
+ * The directory holds the segment files and a manifest listing them in
+ * order. flush() and close() write every in-memory item out as segments and
+ * then atomically replace the manifest, and reopening the directory restores
+ * the deque as of the last flush() or close(); segments written or consumed
+ * since are discarded or kept accordingly. Operations that spill or load a
+ * segment report I/O failures as UncheckedIOException. A failed spill or
+ * load loses nothing: a spill's items stay in memory and the next add tries
+ * again, and a load leaves its segment in place for the next remove.
+ * @param <Item> item to be stored in the deque
+ */
+public class SpillingDeque<Item> implements Iterable<Item>, Closeable {
+
+    private static final int MAGIC = 0x5344514D; // "SDQM"
+    private static final int VERSION = 1;
+    private static final String MANIFEST = "manifest";
+    private static final int DEFAULT_SEGMENT_ITEMS = 1 << 16;
+
+    private final Path directory;
+    private final Serializer<Item> serializer;
+    private final int segmentItems;
+    private final Object[] scratch;    // items of the segment being written
+    private final Deque<Item> head = new Deque<>();
+    private final Deque<Item> tail = new Deque<>();
+    private final ArrayDeque<Segment> middle = new ArrayDeque<>(); // spilled segments, front to back
+    private long middleCount = 0;
+    private long nextId = 0;
+    private long manifestNextId = 0;   // segments below this id may still be listed in the manifest
+    private final LongDeque consumed = new LongDeque(); // such segments, to delete at the next flush
+    private boolean closed = false;
+
+    private static class Segment {
+        final long id;
+        final int count;
+        final long bytes;
+
+        Segment(long id, int count, long bytes) {
+            this.id = id;
+            this.count = count;
+            this.bytes = bytes;
+        }
+    }
+
+    // open the deque stored in the directory, or create an empty one there
+    public SpillingDeque(Path directory, Serializer<Item> serializer) throws IOException {
+        this(directory, serializer, DEFAULT_SEGMENT_ITEMS);
+    }
+
+    // open or create the deque, spilling segments of the given number of items
+    public SpillingDeque(Path directory, Serializer<Item> serializer, int segmentItems) throws IOException {
+        if (directory == null || serializer == null || segmentItems <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = directory;
+        this.serializer = serializer;
+        this.segmentItems = segmentItems;
+        this.scratch = new Object[segmentItems];
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the deque
+    public long size() {
+        return head.size() + middleCount + tail.size();
+    }
+
+    // add the item to the front
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        ensureOpen();
+        head.addFirst(item);
+        if (head.size() > 2 * segmentItems) {
+            spillHead(segmentItems);
+        }
+    }
+
+    // add the item to the back
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        ensureOpen();
+        tail.addLast(item);
+        if (tail.size() > 2 * segmentItems) {
+            spillTail(segmentItems);
+        }
+    }
+
+    // remove and return the item from the front
+    public Item removeFirst() {
+        ensureOpen();
+        if (head.isEmpty()) {
+            if (!middle.isEmpty()) {
+                Segment segment = middle.peekFirst();
+                Deque<Item> items = load(segment);
+                middle.removeFirst();
+                middleCount -= segment.count;
+                items.drainTo(head::addLast, items.size());
+            } else if (!tail.isEmpty()) {
+                return tail.removeFirst();
+            } else {
+                throw new NoSuchElementException();
+            }
+        }
+        return head.removeFirst();
+    }
+
+    // remove and return the item from the back
+    public Item removeLast() {
+        ensureOpen();
+        if (tail.isEmpty()) {
+            if (!middle.isEmpty()) {
+                Segment segment = middle.peekLast();
+                Deque<Item> items = load(segment);
+                middle.removeLast();
+                middleCount -= segment.count;
+                items.drainTo(tail::addLast, items.size());
+            } else if (!head.isEmpty()) {
+                return head.removeLast();
+            } else {
+                throw new NoSuchElementException();
+            }
+        }
+        return tail.removeLast();
+    }
+
+    // write every in-memory item to segment files and record the whole deque in the manifest
+    public void flush() throws IOException {
+        ensureOpen();
+        try {
+            while (!head.isEmpty()) {
+                spillHead(Math.min(segmentItems, head.size()));
+            }
+            while (!tail.isEmpty()) {
+                spillTail(Math.min(segmentItems, tail.size()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeManifest();
+        manifestNextId = nextId;
+        while (!consumed.isEmpty()) {
+            Files.deleteIfExists(segmentPath(consumed.removeFirst()));
+        }
+    }
+
+    // flush the deque; it cannot be used afterwards
+    public void close() throws IOException {
+        if (closed) return;
+        flush();
+        closed = true;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("deque is closed");
+        }
+    }
+
+    // move the n innermost items of the head into a segment in front of the middle; the
+    // items stay in the head until their segment is safely on disk
+    private void spillHead(int n) {
+        Iterator<Item> items = head.iterator();
+        for (int i = head.size() - n; i > 0; i--) {
+            items.next();
+        }
+        for (int i = 0; i < n; i++) {
+            scratch[i] = items.next();
+        }
+        Segment segment = writeSegment(n);
+        for (int i = 0; i < n; i++) {
+            head.removeLast();
+        }
+        middle.addFirst(segment);
+        middleCount += segment.count;
+    }
+
+    // move the n innermost items of the tail into a segment behind the middle; the
+    // items stay in the tail until their segment is safely on disk
+    private void spillTail(int n) {
+        Iterator<Item> items = tail.iterator();
+        for (int i = 0; i < n; i++) {
+            scratch[i] = items.next();
+        }
+        Segment segment = writeSegment(n);
+        for (int i = 0; i < n; i++) {
+            tail.removeFirst();
+        }
+        middle.addLast(segment);
+        middleCount += segment.count;
+    }
+
+    // write the first n scratch items, front to back, to a new segment file; on failure
+    // the partial file is removed and the segment id is given back
+    @SuppressWarnings("unchecked")
+    private Segment writeSegment(int n) {
+        long id = nextId;
+        Path path = segmentPath(id);
+        boolean created = false;
+        try {
+            long bytes = 0;
+            for (int i = 0; i < n; i++) {
+                bytes += serializer.sizeOf((Item) scratch[i]);
+            }
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("segment exceeds 2 GB, use fewer segment items");
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                created = true;
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                for (int i = 0; i < n; i++) {
+                    serializer.write((Item) scratch[i], out);
+                }
+                if (out.hasRemaining()) {
+                    throw new IllegalStateException("serializer wrote fewer bytes than sizeOf() promised");
+                }
+                out.force();
+            }
+            nextId = id + 1;
+            return new Segment(id, n, bytes);
+        } catch (IOException | RuntimeException e) {
+            if (created) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed); // recover() removes it on the next open
+                }
+            }
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        } finally {
+            Arrays.fill(scratch, 0, n, null);
+        }
+    }
+
+    // read the items of the segment into a new deque and retire the segment; if the read
+    // fails, nothing has changed and the segment stays where it is
+    private Deque<Item> load(Segment segment) {
+        Deque<Item> items = new Deque<>();
+        try {
+            read(segment, items);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (segment.id >= manifestNextId) {
+            try {
+                Files.deleteIfExists(segmentPath(segment.id)); // no manifest refers to it
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            consumed.addLast(segment.id);
+        }
+        return items;
+    }
+
+    private void read(Segment segment, Deque<Item> into) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment.id), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.bytes);
+            for (int i = 0; i < segment.count; i++) {
+                into.addLast(serializer.read(in));
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("corrupt segment " + segmentPath(segment.id));
+            }
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve("segment-" + id + ".dat");
+    }
+
+    // manifest: magic, version, next segment id, segment count, then (id, count, bytes) per segment
+    private void writeManifest() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(20 + middle.size() * 20);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(nextId).putInt(middle.size());
+        for (Segment segment : middle) {
+            buffer.putLong(segment.id).putInt(segment.count).putLong(segment.bytes);
+        }
+        buffer.flip();
+
+        Path manifest = directory.resolve(MANIFEST);
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // restore the segments listed in the manifest and delete every other segment file
+    private void recover() throws IOException {
+        Set<Long> listed = new HashSet<>();
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(manifest));
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a version " + VERSION + " deque manifest: " + manifest);
+            }
+            nextId = buffer.getLong();
+            int segments = buffer.getInt();
+            if (segments < 0 || buffer.remaining() != segments * 20L) {
+                throw new IOException("corrupt deque manifest: " + manifest);
+            }
+            for (int i = 0; i < segments; i++) {
+                Segment segment = new Segment(buffer.getLong(), buffer.getInt(), buffer.getLong());
+                Path path = segmentPath(segment.id);
+                if (!Files.exists(path) || Files.size(path) != segment.bytes) {
+                    throw new IOException("missing or truncated segment " + path);
+                }
+                middle.addLast(segment);
+                middleCount += segment.count;
+                listed.add(segment.id);
+            }
+            manifestNextId = nextId;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String digits = name.substring("segment-".length(), name.length() - ".dat".length());
+                if (digits.isEmpty() || !digits.chars().allMatch(Character::isDigit) || digits.length() > 18) {
+                    continue; // not one of ours
+                }
+                long id = Long.parseLong(digits);
+                if (!listed.contains(id)) {
+                    Files.delete(file); // written or consumed after the last flush
+                }
+            }
+        }
+        Files.deleteIfExists(directory.resolve(MANIFEST + ".tmp"));
+    }
+
+    // return an iterator over items in order from front to back, reading spilled segments as it goes
+    public Iterator<Item> iterator() {
+        return new SpillingDequeIterator();
+    }
+
+    private class SpillingDequeIterator implements Iterator<Item>
+    {
+        private final Iterator<Segment> segments = middle.iterator();
+        private Iterator<Item> current = head.iterator();
+        private boolean inTail = false;
+
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (segments.hasNext()) {
+                    Deque<Item> items = new Deque<>();
+                    try {
+                        read(segments.next(), items);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    current = items.iterator();
+                } else if (!inTail) {
+                    current = tail.iterator();
+                    inTail = true;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
+    // unit testing: fills a deque in the given directory, reopens it and drains it again
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        try (SpillingDeque<Integer> deque = new SpillingDeque<>(directory, Serializer.integers(), 1 << 12)) {
+            for (int i = 0; i < items; i++) {
+                deque.addLast(i);
+            }
+            StdOut.println("Size: " + deque.size());
+        }
+
+        try (SpillingDeque<Integer> deque = new SpillingDeque<>(directory, Serializer.integers(), 1 << 12)) {
+            StdOut.println("Size after reopening: " + deque.size());
+            boolean inOrder = true;
+            for (int i = 0; i < items / 2; i++) {
+                inOrder &= deque.removeFirst() == i;
+            }
+            for (int i = items - 1; i >= items / 2; i--) {
+                inOrder &= deque.removeLast() == i;
+            }
+            StdOut.println("Drained in order: " + inOrder);
+            StdOut.println("Size: " + deque.size());
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package module3;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * A randomized queue where the item removed or sampled is chosen with
+ * probability proportional to its weight. Every item occupies a slot whose
+ * index is handed out by enqueue() as a handle, valid until the item is
+ * removed, through which its weight can be read and changed. The slot
+ * weights are summed in a Fenwick tree, so weighted sampling, removal and
+ * weight updates are O(log n); the tree is rebuilt from the exact weights
+ * every so often to keep rounding errors from piling up.
+ * <p>
+ * freeze() additionally builds an alias table (Vose's method), after which
+ * sample() is O(1) until the next change to the queue thaws it again. Slots
+ * are reused but never given back, so capacity follows the largest size
+ * the queue has had.
+ * @param <Item> item to be stored in the queue
+ */
+public class WeightedRandomizedQueue<Item> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Object[] items = new Object[INITIAL_CAPACITY];        // null in free slots
+    private double[] weights = new double[INITIAL_CAPACITY];      // 0 in free slots
+    private double[] tree = new double[INITIAL_CAPACITY + 1];     // Fenwick tree over weights, 1-based
+    private int[] free = new int[INITIAL_CAPACITY];               // stack of free slots
+    private int freeCount = 0;
+    private int size = 0;
+    private int updatesSinceRebuild = 0;
+
+    // alias table over the occupied slots while frozen, null otherwise
+    private int[] aliasSlots = null;
+    private double[] aliasProbability = null;
+    private int[] alias = null;
+
+    // construct an empty weighted randomized queue
+    public WeightedRandomizedQueue() {
+        for (int slot = INITIAL_CAPACITY - 1; slot >= 0; slot--) {
+            free[freeCount++] = slot;
+        }
+    }
+
+    // is the queue empty?
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // return the number of items on the queue
+    public int size() {
+        return size;
+    }
+
+    // return the sum of all weights
+    public double totalWeight() {
+        return tree[items.length];
+    }
+
+    // add the item with the given positive weight and return its handle
+    public int enqueue(Item item, double weight) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        checkWeight(weight);
+        if (freeCount == 0) {
+            resize(2 * items.length);
+        }
+        int slot = free[--freeCount];
+        items[slot] = item;
+        weights[slot] = weight;
+        add(slot, weight);
+        size++;
+        thaw();
+        return slot;
+    }
+
+    // remove and return a random item, chosen in proportion to the weights
+    public Item dequeue() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        int slot = pick();
+        Item item = item(slot);
+        removeSlot(slot);
+        return item;
+    }
+
+    // return a random item, chosen in proportion to the weights (but do not remove it)
+    public Item sample() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return item(pick());
+    }
+
+    // remove and return the item with the given handle
+    public Item remove(int handle) {
+        checkHandle(handle);
+        Item item = item(handle);
+        removeSlot(handle);
+        return item;
+    }
+
+    // return the weight of the item with the given handle
+    public double weight(int handle) {
+        checkHandle(handle);
+        return weights[handle];
+    }
+
+    // change the weight of the item with the given handle
+    public void setWeight(int handle, double weight) {
+        checkHandle(handle);
+        checkWeight(weight);
+        double delta = weight - weights[handle];
+        weights[handle] = weight;
+        add(handle, delta);
+        thaw();
+    }
+
+    // build an alias table, so that sample() is O(1) until the queue changes again
+    public void freeze() {
+        if (isFrozen()) return;
+        int n = size;
+        int[] slots = new int[n];
+        double[] scaled = new double[n];
+        double total = 0;
+        for (int slot = 0, i = 0; i < n; slot++) {
+            if (items[slot] != null) {
+                slots[i] = slot;
+                scaled[i] = weights[slot];
+                total += weights[slot];
+                i++;
+            }
+        }
+
+        // Vose: pair every below-average column with an above-average one that tops it up
+        double[] probability = new double[n];
+        int[] aliases = new int[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = scaled[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // whatever is left is within rounding of exactly one column
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0;
+        }
+
+        aliasSlots = slots;
+        aliasProbability = probability;
+        alias = aliases;
+    }
+
+    // is an alias table in use?
+    public boolean isFrozen() {
+        return aliasSlots != null;
+    }
+
+    private void thaw() {
+        aliasSlots = null;
+        aliasProbability = null;
+        alias = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Item item(int slot) {
+        return (Item) items[slot];
+    }
+
+    // a random occupied slot, chosen in proportion to the weights
+    private int pick() {
+        if (isFrozen()) {
+            int i = StdRandom.uniformInt(aliasSlots.length);
+            return aliasSlots[StdRandom.uniformDouble() < aliasProbability[i] ? i : alias[i]];
+        }
+        while (true) {
+            int slot = find(StdRandom.uniformDouble() * totalWeight());
+            if (slot < items.length && items[slot] != null) {
+                return slot;
+            }
+            rebuild(); // rounding steered the search into a free slot; start again from exact sums
+        }
+    }
+
+    private void removeSlot(int slot) {
+        double weight = weights[slot];
+        weights[slot] = 0.0;
+        items[slot] = null;
+        add(slot, -weight);
+        free[freeCount++] = slot;
+        size--;
+        thaw();
+    }
+
+    // add delta to the weight sum of the slot, whose weight has already been updated
+    private void add(int slot, double delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+        if (++updatesSinceRebuild > items.length) {
+            rebuild();
+        }
+    }
+
+    // the first slot whose prefix weight sum exceeds target
+    private int find(double target) {
+        int position = 0;
+        for (int step = items.length; step > 0; step >>= 1) {
+            if (tree[position + step] <= target) {
+                position += step;
+                target -= tree[position];
+            }
+        }
+        return position;
+    }
+
+    // recompute the tree from the exact slot weights in O(capacity)
+    private void rebuild() {
+        tree[0] = 0.0;
+        System.arraycopy(weights, 0, tree, 1, weights.length);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        updatesSinceRebuild = 0;
+    }
+
+    // grow to the given capacity, a power of two, keeping every handle
+    private void resize(int capacity) {
+        int oldCapacity = items.length;
+        items = Arrays.copyOf(items, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        tree = new double[capacity + 1];
+        free = Arrays.copyOf(free, capacity);
+        for (int slot = capacity - 1; slot >= oldCapacity; slot--) {
+            free[freeCount++] = slot;
+        }
+        rebuild();
+    }
+
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= items.length || items[handle] == null) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private static void checkWeight(double weight) {
+        if (!(weight > 0) || weight == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        WeightedRandomizedQueue<String> queue = new WeightedRandomizedQueue<>();
+        int a = queue.enqueue("a", 1.0);
+        queue.enqueue("b", 2.0);
+        queue.enqueue("c", 7.0);
+        StdOut.println("Size: " + queue.size() + ", total weight: " + queue.totalWeight());
+
+        StdOut.println("Weighted sampling (expect about 1 : 2 : 7)");
+        printFrequencies(queue);
+
+        queue.freeze();
+        StdOut.println("Weighted sampling from the alias table");
+        printFrequencies(queue);
+
+        queue.setWeight(a, 10.0);
+        StdOut.println("Frozen after changing a weight? " + queue.isFrozen());
+        StdOut.println("Weighted sampling with a at weight 10");
+        printFrequencies(queue);
+
+        StdOut.println("Weighted dequeuing");
+        while (!queue.isEmpty()) {
+            StdOut.print(queue.dequeue() + " ");
+        }
+        StdOut.println();
+        StdOut.println("Size: " + queue.size());
+    }
+
+    private static void printFrequencies(WeightedRandomizedQueue<String> queue) {
+        int trials = 100000;
+        int[] counts = new int[3];
+        for (int i = 0; i < trials; i++) {
+            counts[queue.sample().charAt(0) - 'a']++;
+        }
+        StdOut.println("a: " + counts[0] + ", b: " + counts[1] + ", c: " + counts[2]);
+    }
+}
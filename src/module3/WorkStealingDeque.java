@@ -0,0 +1,182 @@
+package module3;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * A Chase-Lev work-stealing deque. One owning thread adds and removes items
+ * at the front, like a stack, without locks; any other thread may steal the
+ * oldest item from the back with removeLast(), which only contends with
+ * other thieves and, for the very last item, with the owner. Items live in
+ * a circular array that the owner doubles when it fills up.
+ * <p>
+ * addFirst() and removeFirst() must only be called by the owner. There is no
+ * addLast() and no iterator, since neither can be offered safely to
+ * concurrent thieves. Slots of stolen items keep their reference until the
+ * owner reuses them.
+ * @param <Item> item to be stored in the deque
+ */
+public class WorkStealingDeque<Item> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final AtomicLong top = new AtomicLong(); // index of the back item, advanced by thieves
+    private volatile long bottom = 0;                // index one past the front item, written by the owner
+    private volatile Object[] items = new Object[INITIAL_CAPACITY]; // capacity is a power of two
+
+    // construct an empty deque
+    public WorkStealingDeque() {
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the deque; only a snapshot while thieves are active
+    public int size() {
+        long t = top.get();
+        long b = bottom;
+        return (int) Math.max(0, b - t);
+    }
+
+    // add the item to the front (owner only)
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        long b = bottom;
+        long t = top.get();
+        Object[] a = items;
+        if (b - t >= a.length - 1) {
+            a = grow(a, t, b);
+        }
+        a[(int) b & (a.length - 1)] = item;
+        bottom = b + 1; // publishes the item to thieves
+    }
+
+    // remove and return the item from the front (owner only)
+    public Item removeFirst() {
+        long b = bottom - 1;
+        Object[] a = items;
+        bottom = b; // claim the slot before looking at top
+        long t = top.get();
+        if (t > b) {
+            bottom = b + 1; // was empty
+            throw new NoSuchElementException();
+        }
+        int slot = (int) b & (a.length - 1);
+        Item item = item(a, slot);
+        if (t == b) {
+            // the last item: race the thieves for it
+            boolean won = top.compareAndSet(t, t + 1);
+            bottom = b + 1;
+            if (!won) {
+                throw new NoSuchElementException();
+            }
+        }
+        a[slot] = null;
+        return item;
+    }
+
+    // remove and return the item from the back (any thread)
+    public Item removeLast() {
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b) {
+                throw new NoSuchElementException();
+            }
+            Object[] a = items;
+            Item item = item(a, (int) t & (a.length - 1));
+            if (top.compareAndSet(t, t + 1)) {
+                return item;
+            }
+            // lost to another thief or the owner; look again
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Item> Item item(Object[] a, int slot) {
+        return (Item) a[slot];
+    }
+
+    // copy items top through bottom - 1 into an array twice the size; thieves still
+    // reading the old array find the same items there
+    private Object[] grow(Object[] a, long t, long b) {
+        Object[] grown = new Object[2 * a.length];
+        for (long i = t; i < b; i++) {
+            grown[(int) i & (grown.length - 1)] = a[(int) i & (a.length - 1)];
+        }
+        items = grown;
+        return grown;
+    }
+
+    // unit testing: the owner pushes and pops while thieves steal, and every item is taken once
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int thieves = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        boolean[] taken = new boolean[items];
+        long[] stolen = new long[thieves];
+        Thread[] threads = new Thread[thieves];
+        for (int i = 0; i < thieves; i++) {
+            int thief = i;
+            threads[i] = new Thread(() -> {
+                long count = 0;
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        int item = deque.removeLast();
+                        synchronized (taken) {
+                            assert !taken[item];
+                            taken[item] = true;
+                        }
+                        count++;
+                    } catch (NoSuchElementException e) {
+                        Thread.onSpinWait();
+                    }
+                }
+                stolen[thief] = count;
+            });
+            threads[i].start();
+        }
+
+        long popped = 0;
+        for (int i = 0; i < items; i++) {
+            deque.addFirst(i);
+            if (i % 3 == 0) {
+                try {
+                    int item = deque.removeFirst();
+                    synchronized (taken) {
+                        assert !taken[item];
+                        taken[item] = true;
+                    }
+                    popped++;
+                } catch (NoSuchElementException e) {
+                    // a thief got it first
+                }
+            }
+        }
+        while (!deque.isEmpty()) {
+            Thread.onSpinWait();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+
+        long total = popped;
+        for (long count : stolen) {
+            total += count;
+        }
+        boolean allTaken = true;
+        for (boolean flag : taken) {
+            allTaken &= flag;
+        }
+        StdOut.println("Popped by owner: " + popped);
+        StdOut.println("Stolen: " + (total - popped));
+        StdOut.println("All items taken exactly once: " + (allTaken && total == items));
+    }
+}